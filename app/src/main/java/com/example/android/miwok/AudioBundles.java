@@ -0,0 +1,252 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * {@link AudioBundles} gives access to the pronunciation clips, which audio.gradle concatenates
+ * into one bundle asset per category at build time. Every clip is a complete audio file at some
+ * offset of its bundle, so players are handed the descriptor of the bundle together with the
+ * offset and the length of the clip, and never have to open a file of their own.
+ *
+ * Clips are identified by a clip ID, which is never 0. The bundle index, which lists the
+ * bundle, offset, length and duration of every clip, is read the first time it is needed.
+ * Each bundle is opened once, the first time one of its clips is asked for, and stays open.
+ *
+ * The clips of installed {@link ContentPack}s are added with
+ * {@link #addClip(FileDescriptor, String, long, long)} and get clip IDs after those of the
+ * bundles, so they are played the same way, straight from the pack file.
+ */
+public class AudioBundles {
+
+    private static final String LOG_TAG = AudioBundles.class.getSimpleName();
+
+    /** Name of the asset holding the bundle index */
+    public static final String INDEX_ASSET_NAME = "audio/index.tsv";
+
+    /** Clip ID meaning that there is no clip */
+    public static final int NO_CLIP = 0;
+
+    /** Duration returned for a clip whose duration is unknown */
+    public static final long UNKNOWN_DURATION = -1;
+
+    private static AudioBundles sInstance;
+
+    private final Context mContext;
+
+    /*
+     * Clips in the order of the index, the clip ID is the position in this list plus one.
+     * Clips that were removed are left as null, so the IDs of the others do not change.
+     */
+    private ArrayList<Clip> mClips;
+
+    /* Clip IDs by clip name */
+    private HashMap<String, Integer> mClipIds;
+
+    /* Bundles that have been opened, by asset name */
+    private final HashMap<String, AssetFileDescriptor> mBundles = new HashMap<>();
+
+    /**
+     * Returns the app wide {@link AudioBundles}.
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized AudioBundles getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new AudioBundles(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private AudioBundles(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Returns the ID of the clip with the given name, or {@link #NO_CLIP} if there is none
+     */
+    public synchronized int getClipId(String name) {
+        readIndex();
+        Integer clipId = mClipIds.get(name);
+        return clipId == null ? NO_CLIP : clipId;
+    }
+
+    /**
+     * Add a clip that is not in the bundles, such as one of a content pack. It can only be
+     * found by the returned clip ID, {@link #getClipId(String)} only knows the bundled clips.
+     *
+     * @param fileDescriptor is the file holding the clip, which must stay open
+     * @param name is the name of the clip
+     * @param offset is where the clip starts in the file
+     * @param length is the length of the clip in bytes
+     * @return the clip ID of the clip
+     */
+    public synchronized int addClip(FileDescriptor fileDescriptor, String name, long offset,
+                                    long length) {
+        readIndex();
+        mClips.add(new Clip(name, null, fileDescriptor, offset, length, UNKNOWN_DURATION));
+        return mClips.size();
+    }
+
+    /**
+     * Forget a clip added with {@link #addClip(FileDescriptor, String, long, long)}, such as
+     * when its content pack is replaced. Its clip ID is not handed out again, and is treated as
+     * the ID of a clip that does not exist.
+     */
+    public synchronized void removeClip(int clipId) {
+        Clip clip = getClip(clipId);
+        if (clip != null && clip.mFileDescriptor != null) {
+            mClips.set(clipId - 1, null);
+        }
+    }
+
+    /**
+     * Returns the name of the given clip, or null if there is no such clip
+     */
+    public synchronized String getClipName(int clipId) {
+        Clip clip = getClip(clipId);
+        return clip == null ? null : clip.mName;
+    }
+
+    /**
+     * Returns the duration in milliseconds of the given clip, or {@link #UNKNOWN_DURATION}
+     */
+    public synchronized long getDurationMs(int clipId) {
+        Clip clip = getClip(clipId);
+        return clip == null ? UNKNOWN_DURATION : clip.mDurationMs;
+    }
+
+    /**
+     * Returns the length in bytes of the given clip, or 0 if there is no such clip
+     */
+    public synchronized long getLength(int clipId) {
+        Clip clip = getClip(clipId);
+        return clip == null ? 0 : clip.mLength;
+    }
+
+    /**
+     * Returns the descriptor of the file holding the given clip, opening its bundle if needed,
+     * or null if it can not be opened. The clip starts at {@link #getOffset(int)} of that file
+     * and is {@link #getLength(int)} bytes long. The descriptor is shared and must not be closed.
+     */
+    public synchronized FileDescriptor getFileDescriptor(int clipId) {
+        Clip clip = getClip(clipId);
+        if (clip != null && clip.mFileDescriptor != null) {
+            return clip.mFileDescriptor;
+        }
+        AssetFileDescriptor bundle = openBundle(clipId);
+        return bundle == null ? null : bundle.getFileDescriptor();
+    }
+
+    /**
+     * Returns where the given clip starts in the file returned by
+     * {@link #getFileDescriptor(int)}, or -1 if its bundle can not be opened.
+     */
+    public synchronized long getOffset(int clipId) {
+        Clip clip = getClip(clipId);
+        if (clip != null && clip.mFileDescriptor != null) {
+            return clip.mOffset;
+        }
+        AssetFileDescriptor bundle = openBundle(clipId);
+        return bundle == null ? -1 : bundle.getStartOffset() + getClip(clipId).mOffset;
+    }
+
+    private AssetFileDescriptor openBundle(int clipId) {
+        Clip clip = getClip(clipId);
+        if (clip == null) {
+            return null;
+        }
+        AssetFileDescriptor bundle = mBundles.get(clip.mBundle);
+        if (bundle == null) {
+            try {
+                // Bundles are stored uncompressed, so this is a region of the APK itself
+                bundle = mContext.getAssets().openFd(clip.mBundle);
+                mBundles.put(clip.mBundle, bundle);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Could not open audio bundle " + clip.mBundle, e);
+            }
+        }
+        return bundle;
+    }
+
+    private Clip getClip(int clipId) {
+        readIndex();
+        if (clipId <= NO_CLIP || clipId > mClips.size()) {
+            return null;
+        }
+        return mClips.get(clipId - 1);
+    }
+
+    private void readIndex() {
+        if (mClips != null) {
+            return;
+        }
+        mClips = new ArrayList<>();
+        mClipIds = new HashMap<>();
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(
+                    mContext.getAssets().open(INDEX_ASSET_NAME), "UTF-8"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // name, bundle, offset, length, duration
+                String[] columns = line.split("\t");
+                if (columns.length != 5) {
+                    continue;
+                }
+                mClips.add(new Clip(columns[0], columns[1], null, Long.parseLong(columns[2]),
+                        Long.parseLong(columns[3]), Long.parseLong(columns[4])));
+                mClipIds.put(columns[0], mClips.size());
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.e(LOG_TAG, "Could not read " + INDEX_ASSET_NAME, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Could not close " + INDEX_ASSET_NAME, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Where a clip is stored, and how long it plays.
+     */
+    private static class Clip {
+
+        private final String mName;
+
+        /* Asset name of the bundle holding the clip, null if it is not in a bundle */
+        private final String mBundle;
+
+        /* File holding the clip if it is not in a bundle, such as a content pack */
+        private final FileDescriptor mFileDescriptor;
+
+        /* Where the clip starts in its bundle or file, and its length, in bytes */
+        private final long mOffset;
+        private final long mLength;
+
+        private final long mDurationMs;
+
+        Clip(String name, String bundle, FileDescriptor fileDescriptor, long offset, long length,
+             long durationMs) {
+            mName = name;
+            mBundle = bundle;
+            mFileDescriptor = fileDescriptor;
+            mOffset = offset;
+            mLength = length;
+            mDurationMs = durationMs;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link AudioPrefetcher} watches the scroll position of a word list and loads the
+ * pronunciations of the visible and soon to be visible {@link Word}s into the
+ * {@link PronunciationEngine} on a background thread, so that the first tap on a row does not
+ * have to wait for its clip to be decoded.
+ *
+ * Work queued for rows that scroll away before it has started is cancelled.
+ */
+public class AudioPrefetcher extends RecyclerView.OnScrollListener {
+
+    /* Number of rows above and below the visible ones whose clips are loaded ahead of time */
+    private static final int LOOKAHEAD_ROWS = 4;
+
+    /* Background thread shared by every prefetcher */
+    private static HandlerThread sPrefetchThread;
+
+    private final Handler mHandler;
+
+    /* Owns the {@link PronunciationEngine}, which it creates on its audio thread */
+    private final PlaybackController mPlaybackController;
+
+    /* Name of the category the words belong to */
+    private final String mCategory;
+
+    private final WordAdapter mAdapter;
+
+    /* First and last rows of the window that was scheduled last, -1 if none */
+    private int mScheduledFirst = -1;
+    private int mScheduledLast = -1;
+
+    /**
+     * Create a new {@link AudioPrefetcher} object.
+     *
+     * @param context is the context used to reach the {@link PlaybackController}
+     * @param category is the name of the category the words belong to
+     * @param adapter is the adapter of the list displaying the words
+     */
+    public AudioPrefetcher(Context context, String category, WordAdapter adapter) {
+        mHandler = new Handler(getPrefetchThread().getLooper());
+        mPlaybackController = PlaybackController.getInstance(context);
+        mCategory = category;
+        mAdapter = adapter;
+    }
+
+    private static synchronized HandlerThread getPrefetchThread() {
+        if (sPrefetchThread == null) {
+            sPrefetchThread = new HandlerThread("AudioPrefetch",
+                    Process.THREAD_PRIORITY_BACKGROUND);
+            sPrefetchThread.start();
+        }
+        return sPrefetchThread;
+    }
+
+    /**
+     * Called when the list scrolls, and with no scroll distance when the visible rows change
+     * after a layout. The list must use a {@link LinearLayoutManager}.
+     */
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
+        int lastVisibleItem = layoutManager.findLastVisibleItemPosition();
+        if (firstVisibleItem == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int first = Math.max(0, firstVisibleItem - LOOKAHEAD_ROWS);
+        int last = Math.min(mAdapter.getItemCount() - 1, lastVisibleItem + LOOKAHEAD_ROWS);
+        if (first == mScheduledFirst && last == mScheduledLast) {
+            return;
+        }
+        mScheduledFirst = first;
+        mScheduledLast = last;
+
+        // Forget the rows that were queued for the previous window but have not been loaded yet
+        mHandler.removeCallbacksAndMessages(this);
+
+        // Visible rows first, then the ones the user is most likely to scroll to next
+        for (int position = firstVisibleItem; position <= last; position++) {
+            schedule(position);
+        }
+        for (int position = firstVisibleItem - 1; position >= first; position--) {
+            schedule(position);
+        }
+    }
+
+    /**
+     * Cancel every load that has not started yet. Call this when the list goes away.
+     */
+    public void cancel() {
+        mHandler.removeCallbacksAndMessages(this);
+        mScheduledFirst = -1;
+        mScheduledLast = -1;
+    }
+
+    private void schedule(int position) {
+        Word word = mAdapter.getWord(position);
+        if (word == null) {
+            // Not loaded yet, the list schedules the window again once it has the word
+            return;
+        }
+        final int audioClipId = word.getAudioClipId();
+        PronunciationEngine engine = mPlaybackController.getPronunciationEngine();
+        if (engine != null && engine.isLoaded(audioClipId)) {
+            return;
+        }
+        mHandler.postAtTime(new Runnable() {
+            @Override
+            public void run() {
+                // The audio thread creates the engine before anything else it runs, so it is
+                // only missing right after the controller was created. Taps still play the
+                // clip through the media player then.
+                PronunciationEngine engine = mPlaybackController.getPronunciationEngine();
+                if (engine != null) {
+                    engine.loadClip(mCategory, audioClipId);
+                }
+            }
+        }, this, SystemClock.uptimeMillis());
+    }
+}
@@ -1,22 +1,39 @@
 package com.example.android.miwok;
 
 import android.content.Context;
-import android.content.res.Resources;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
-import android.support.v4.app.FragmentPagerAdapter;
-import android.util.Log;
-import android.widget.Toast;
+import android.support.v4.app.FragmentStatePagerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * {@link CategoryAdapter} is a {@link FragmentPagerAdapter} that can provide the layout for
- * each list item based on a data source which is a list of {@link Word} objects.
+ * {@link CategoryAdapter} is a {@link FragmentStatePagerAdapter} that provides a
+ * {@link WordListFragment} for each category of the {@link Vocabulary}, in vocabulary order,
+ * followed by the categories of the installed content packs.
+ *
+ * The pager has no pages until it is handed the vocabulary, which is mapped in the background
+ * by {@link WordRepository#loadVocabulary}, and the pages of the packs are added once the packs
+ * are opened.
+ *
+ * Only the fragments of the visible page and its neighbours exist at any time, the others are
+ * destroyed and only their saved state is kept, so the number of categories does not matter.
  */
-public class CategoryAdapter extends FragmentPagerAdapter {
+public class CategoryAdapter extends FragmentStatePagerAdapter {
 
     /** Context of the app */
     private Context mContext;
 
+    /** Categories shown by the pager, null until the vocabulary is loaded */
+    private Vocabulary mVocabulary;
+
+    /* Pack of each category of the content packs, in page order after the vocabulary's */
+    private final ArrayList<ContentPack> mPackPages = new ArrayList<>();
+
+    /* Index of each of those categories in the vocabulary of its pack */
+    private final ArrayList<Integer> mPackCategories = new ArrayList<>();
+
 
     /**
      * Create a new {@link CategoryAdapter} object.
@@ -30,21 +47,56 @@ public class CategoryAdapter extends FragmentPagerAdapter {
         mContext = context;
     }
 
+    /**
+     * Show the categories of the given vocabulary before those of the content packs
+     */
+    public void setVocabulary(Vocabulary vocabulary) {
+        mVocabulary = vocabulary;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Show the categories of the given content packs after those of the vocabulary, replacing
+     * the packs that were shown before.
+     */
+    public void setPacks(List<ContentPack> packs) {
+        mPackPages.clear();
+        mPackCategories.clear();
+        for (ContentPack pack : packs) {
+            for (int category = 0; category < pack.getVocabulary().getCategoryCount();
+                 category++) {
+                mPackPages.add(pack);
+                mPackCategories.add(category);
+            }
+        }
+        notifyDataSetChanged();
+    }
+
     /**
      * Return the {@link Fragment} that should be displayed for the given page number
      */
     @Override
     public Fragment getItem(int position) {
+        int vocabularyCount = getVocabularyCount();
+        if (position < vocabularyCount) {
+            return WordListFragment.newInstance(mVocabulary.getCategoryName(position),
+                    mVocabulary.getCategoryColorResourceId(position));
+        }
+        ContentPack pack = mPackPages.get(position - vocabularyCount);
+        return WordListFragment.newInstance(pack.getName(), pack.getVocabulary()
+                .getCategoryName(mPackCategories.get(position - vocabularyCount)));
+    }
 
-        if (position == 0) {
-            return new NumbersFragment();
-        } else if (position == 1) {
-            return new FamilyFragment();
-        } else if (position == 2) {
-            return new ColorsFragment();
-        } else {
-            return new PhrasesFragment();
+    /**
+     * The pages of the vocabulary never move, those of the packs are created again whenever the
+     * packs change, since a pack may have been replaced by one with other categories
+     */
+    @Override
+    public int getItemPosition(Object object) {
+        if (((WordListFragment) object).getPack() != null) {
+            return POSITION_NONE;
         }
+        return POSITION_UNCHANGED;
     }
 
 
@@ -54,7 +106,12 @@ public class CategoryAdapter extends FragmentPagerAdapter {
      */
     @Override
     public int getCount() {
-        return 4;
+        return getVocabularyCount() + mPackPages.size();
+    }
+
+    /* Number of pages of the vocabulary, none until it is loaded */
+    private int getVocabularyCount() {
+        return mVocabulary == null ? 0 : mVocabulary.getCategoryCount();
     }
 
 
@@ -64,17 +121,13 @@ public class CategoryAdapter extends FragmentPagerAdapter {
      */
     @Override
     public CharSequence getPageTitle(int position) {
-
-        if (position == 0) {
-            return mContext.getString(R.string.category_numbers);
-        } else if (position == 1) {
-            return mContext.getString(R.string.family);
-        } else if (position == 2) {
-            return mContext.getString(R.string.category_colors);
-        } else {
-            return mContext.getString(R.string.category_phrases);
+        int vocabularyCount = getVocabularyCount();
+        if (position < vocabularyCount) {
+            return mContext.getString(mVocabulary.getCategoryTitleResourceId(position));
         }
+        // Packs hold their titles as text, they have no resources of their own
+        return mPackPages.get(position - vocabularyCount)
+                .getCategoryTitle(mPackCategories.get(position - vocabularyCount));
     }
 
 }
-
@@ -0,0 +1,247 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.support.v4.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * {@link CategoryCache} keeps the loaded words of every category for as long as the app runs,
+ * so swiping back to a tab or rotating the screen reuses them instead of querying the
+ * vocabulary database again. It lives outside of any fragment or activity and is not affected
+ * by their lifecycle.
+ *
+ * Categories of content packs are kept as well, under the name of their pack (see
+ * {@link ContentPacks}). Their words are all decoded at once, since a pack is read in place.
+ *
+ * Pronunciations do not need to be kept here: the {@link PronunciationEngine} already keeps the
+ * decoded clips of each category across fragments.
+ *
+ * All methods must be called from the main thread.
+ */
+public class CategoryCache {
+
+    /**
+     * Receives the data of a category once it is loaded.
+     */
+    public interface Callback {
+
+        /**
+         * Called on the main thread, right away if the category was already loaded.
+         */
+        void onCategoryLoaded(Category category);
+    }
+
+    /**
+     * The loaded words of a category and the resolved color its list is drawn with.
+     */
+    public static class Category {
+
+        private final String mName;
+
+        private final List<Word> mWords;
+
+        private final int mColor;
+
+        Category(String name, List<Word> words, int color) {
+            mName = name;
+            mWords = words;
+            mColor = color;
+        }
+
+        /**
+         * Returns the name of the category in the {@link Vocabulary} or in its content pack
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Returns the words of the category, in category order. The words of a category of the
+         * APK are a {@link PagedWordList}, which only keeps the pages around the rows being
+         * displayed in memory.
+         */
+        public List<Word> getWords() {
+            return mWords;
+        }
+
+        /**
+         * Returns the background color of the category's list, as a color value
+         */
+        public int getColor() {
+            return mColor;
+        }
+    }
+
+    private static CategoryCache sInstance;
+
+    private final Context mContext;
+
+    private final WordRepository mWordRepository;
+
+    /* Categories that have been loaded, by key, see key() */
+    private final HashMap<String, Category> mCategories = new HashMap<>();
+
+    /* Callbacks waiting for a category that is being loaded, by key */
+    private final HashMap<String, List<Callback>> mPendingCallbacks = new HashMap<>();
+
+    /* Number of times each content pack was evicted, so loads started before are not kept */
+    private final HashMap<String, Integer> mPackGenerations = new HashMap<>();
+
+    /**
+     * Returns the app wide {@link CategoryCache}
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized CategoryCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new CategoryCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private CategoryCache(Context context) {
+        mContext = context;
+        mWordRepository = WordRepository.getInstance(context);
+    }
+
+    /**
+     * Hand over the data of the given category, loading it in the background the first time it
+     * is asked for.
+     *
+     * @param name is the name of the category in the {@link Vocabulary}
+     * @param colorResourceId is the color resource the category's list is drawn with
+     * @param callback receives the category on the main thread
+     */
+    public void load(final String name, final int colorResourceId, Callback callback) {
+        final String key = key(null, name);
+        if (!addCallback(key, callback)) {
+            return;
+        }
+        mWordRepository.loadCategory(name, new WordRepository.Callback() {
+            @Override
+            public void onWordsLoaded(PagedWordList words) {
+                deliver(key, new Category(name, words,
+                        ContextCompat.getColor(mContext, colorResourceId)), true);
+            }
+        });
+    }
+
+    /**
+     * Hand over the data of a category of an installed content pack, loading it in the
+     * background the first time it is asked for. If the pack or the category is not installed
+     * anymore, the callback receives an empty category, which is not kept.
+     *
+     * @param packName is the name of the content pack of the category
+     * @param name is the name of the category in the vocabulary of the pack
+     * @param callback receives the category on the main thread
+     */
+    public void load(String packName, String name, Callback callback) {
+        String key = key(packName, name);
+        if (addCallback(key, callback)) {
+            loadPackWords(packName, name, key);
+        }
+    }
+
+    /**
+     * Forget the categories of the given content pack, once it has been replaced by a newer
+     * install, so they are loaded from the new one. Categories of the pack that are being
+     * loaded are loaded again from the new one.
+     */
+    public void evictPack(String packName) {
+        mPackGenerations.put(packName, getPackGeneration(packName) + 1);
+        String prefix = key(packName, "");
+        Iterator<String> keys = mCategories.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().startsWith(prefix)) {
+                keys.remove();
+            }
+        }
+    }
+
+    private void loadPackWords(final String packName, final String name, final String key) {
+        final int generation = getPackGeneration(packName);
+        ContentPacks.getInstance(mContext).loadWords(packName, name,
+                new ContentPacks.WordsCallback() {
+                    @Override
+                    public void onWordsLoaded(ContentPack pack, WordTable words) {
+                        if (generation != getPackGeneration(packName)) {
+                            // The pack was replaced while they were loading, they may come from
+                            // the old one
+                            loadPackWords(packName, name, key);
+                            return;
+                        }
+                        int defaultColor = ContextCompat.getColor(mContext, R.color.primary_color);
+                        if (words == null) {
+                            // Not kept, the category may be installed again
+                            deliver(key, new Category(name, Collections.<Word>emptyList(),
+                                    defaultColor), false);
+                            return;
+                        }
+                        int color = pack.getCategoryColor(
+                                pack.getVocabulary().findCategory(name), defaultColor);
+                        deliver(key, new Category(name, words, color), true);
+                    }
+                });
+    }
+
+    /**
+     * Returns how many times the given content pack was evicted
+     */
+    private int getPackGeneration(String packName) {
+        Integer generation = mPackGenerations.get(packName);
+        return generation == null ? 0 : generation;
+    }
+
+    /**
+     * Returns the key of a category in the cache, the categories of the APK being keyed by name
+     */
+    private static String key(String packName, String name) {
+        // A name from the APK's vocabulary never holds a slash
+        return packName == null ? name : packName + "/" + name;
+    }
+
+    /**
+     * Hand over the category with the given key right away if it was loaded, or keep the
+     * callback until it is.
+     *
+     * @return true if the category has to be loaded, false if it was handed over or is
+     * already being loaded for someone else
+     */
+    private boolean addCallback(String key, Callback callback) {
+        Category category = mCategories.get(key);
+        if (category != null) {
+            callback.onCategoryLoaded(category);
+            return false;
+        }
+
+        List<Callback> pendingCallbacks = mPendingCallbacks.get(key);
+        if (pendingCallbacks != null) {
+            // Already being loaded for someone else
+            pendingCallbacks.add(callback);
+            return false;
+        }
+        pendingCallbacks = new ArrayList<>();
+        pendingCallbacks.add(callback);
+        mPendingCallbacks.put(key, pendingCallbacks);
+        return true;
+    }
+
+    /**
+     * Hand over a category to the callbacks waiting for it.
+     *
+     * @param keep is true if the category is kept for the next callers
+     */
+    private void deliver(String key, Category category, boolean keep) {
+        if (keep) {
+            mCategories.put(key, category);
+        }
+        for (Callback callback : mPendingCallbacks.remove(key)) {
+            callback.onCategoryLoaded(category);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.android.miwok;
+
+import android.graphics.Color;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+
+/**
+ * {@link ContentPack} is an installed content pack, which brings categories that are not in
+ * the APK (see {@link ContentPackFile} for the format, and {@link ContentPacks} for installing
+ * them).
+ *
+ * The pack file is read in place: it is memory-mapped, so its vocabulary is read by
+ * {@link VocabularyFile} and its images are decoded straight from the mapping, and it stays
+ * open, so its clips are played from the pack's file descriptor at their offset, like the clips
+ * of the APK's audio bundles. Nothing is extracted.
+ */
+public class ContentPack {
+
+    private static final String LOG_TAG = ContentPack.class.getSimpleName();
+
+    private final String mName;
+
+    /* Kept open for as long as the pack is used, its descriptor is handed to the players */
+    private final FileInputStream mStream;
+
+    private final ContentPackFile mPackFile;
+
+    private final VocabularyFile mVocabulary;
+
+    private final AudioBundles mAudioBundles;
+
+    private final ContentPacks mContentPacks;
+
+    /* Clip IDs in AudioBundles by audio name */
+    private final HashMap<String, Integer> mClipIds = new HashMap<>();
+
+    /* Image IDs given by ContentPacks by image name */
+    private final HashMap<String, Integer> mImageIds = new HashMap<>();
+
+    /**
+     * Open an installed pack and register its clips with {@link AudioBundles} and its images with
+     * {@link ContentPacks}. This reads the index of the pack but not its data, so it is fast
+     * whatever the size of the pack, but it still touches the disk and must not be called on the
+     * main thread.
+     *
+     * @param file is a pack that was installed by {@link ContentPacks}, and so verified
+     * @throws IOException if the pack can not be read or is malformed
+     */
+    static ContentPack open(String name, File file, ContentPacks contentPacks,
+                            AudioBundles audioBundles) throws IOException {
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            // The mapping stays valid after the file is closed, until it is garbage collected
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new ContentPack(name, stream, new ContentPackFile(buffer), contentPacks,
+                    audioBundles);
+        } catch (IOException e) {
+            stream.close();
+            throw e;
+        } catch (RuntimeException e) {
+            // The pack is checked as it is opened, but whatever slips through is still a bad
+            // pack rather than a crash of the executor
+            stream.close();
+            throw new IOException("Content pack " + name + " is malformed", e);
+        }
+    }
+
+    private ContentPack(String name, FileInputStream stream, ContentPackFile packFile,
+                        ContentPacks contentPacks, AudioBundles audioBundles)
+            throws IOException {
+        mName = name;
+        mStream = stream;
+        mPackFile = packFile;
+        mContentPacks = contentPacks;
+        mAudioBundles = audioBundles;
+        mVocabulary = packFile.getVocabulary();
+
+        FileDescriptor fileDescriptor = stream.getFD();
+        for (int entry = 0; entry < packFile.getEntryCount(); entry++) {
+            String entryName = packFile.getName(entry);
+            if (packFile.getType(entry) == ContentPackFile.TYPE_AUDIO) {
+                mClipIds.put(entryName, audioBundles.addClip(fileDescriptor, entryName,
+                        packFile.getOffset(entry), packFile.getLength(entry)));
+            } else if (packFile.getType(entry) == ContentPackFile.TYPE_IMAGE) {
+                mImageIds.put(entryName, contentPacks.addImage(this, entry));
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the pack, which is the name of its file without the extension
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Returns the categories and words of the pack
+     */
+    public VocabularyFile getVocabulary() {
+        return mVocabulary;
+    }
+
+    /**
+     * Returns the title of the category at the given index
+     */
+    public String getCategoryTitle(int categoryIndex) {
+        return mVocabulary.getCategoryTitleName(categoryIndex);
+    }
+
+    /**
+     * Returns the color of the list of the category at the given index, or the given default
+     * color if the pack gives none that can be parsed
+     */
+    public int getCategoryColor(int categoryIndex, int defaultColor) {
+        if (mVocabulary.getCategoryColorKey(categoryIndex) != VocabularyFile.NO_STRING) {
+            String color = mVocabulary.getCategoryColorName(categoryIndex);
+            try {
+                return Color.parseColor(color);
+            } catch (IllegalArgumentException e) {
+                Log.w(LOG_TAG, "Invalid color " + color + " in content pack " + mName);
+            }
+        }
+        return defaultColor;
+    }
+
+    /**
+     * Decode the words of the given category into a {@link WordTable}. Their pronunciations play
+     * through {@link PlaybackController} and their images load through {@link WordImageLoader}
+     * like those of the APK. Must not be called on the main thread.
+     */
+    WordTable loadWords(String category) {
+        int categoryIndex = mVocabulary.findCategory(category);
+        if (categoryIndex < 0) {
+            throw new IllegalArgumentException("Unknown category " + category);
+        }
+        int first = mVocabulary.getFirstWord(categoryIndex);
+        int size = mVocabulary.getCategorySize(categoryIndex);
+        WordTable words = new WordTable(size);
+        for (int word = first; word < first + size; word++) {
+            Integer clipId = mClipIds.get(mVocabulary.getAudioName(word));
+            Integer imageId = mVocabulary.getImageKey(word) == VocabularyFile.NO_STRING
+                    ? null : mImageIds.get(mVocabulary.getImageName(word));
+            words.addWord(WordTable.NO_CATEGORY, mVocabulary.getDefaultTranslation(word),
+                    mVocabulary.getMiwokTranslation(word),
+                    imageId == null ? WordTable.NO_IMAGE : imageId,
+                    clipId == null ? AudioBundles.NO_CLIP : clipId);
+        }
+        return words;
+    }
+
+    /**
+     * Returns a stream over the image held by the given entry, read in place from the mapping
+     */
+    InputStream openImage(int entry) {
+        return mPackFile.openEntry(entry);
+    }
+
+    /**
+     * Unregister the clips and images of the pack and close its file, once it has been replaced
+     * by a newer install. Its words are left without a pronunciation or an image.
+     */
+    void close() {
+        for (int clipId : mClipIds.values()) {
+            mAudioBundles.removeClip(clipId);
+        }
+        for (int imageId : mImageIds.values()) {
+            mContentPacks.removeImage(imageId);
+        }
+        try {
+            mStream.close();
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Could not close content pack " + mName, e);
+        }
+    }
+}
@@ -0,0 +1,464 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link ContentPacks} installs content packs and opens the installed ones, so categories can
+ * be added without a new release of the app.
+ *
+ * Installed packs live in the packs directory of the app's files, one file per pack named
+ * after the pack. Installing a pack streams it into a temporary file of that directory,
+ * checking the checksums of its index and of every entry on the way (see
+ * {@link ContentPackFile#copy(InputStream, OutputStream)}), and only then renames it to its
+ * final name. A pack of any size is installed through buffers of a few dozen kilobytes, and
+ * a pack that is corrupt or cut short is never installed.
+ *
+ * The categories of the installed packs are shown after those of the APK (see
+ * {@link CategoryAdapter}), and their images are handed to {@link WordImageLoader} through
+ * image IDs given here, which are negative so they never clash with drawable resource IDs.
+ *
+ * Every method takes its callback on the main thread, and the work is done in the background
+ * in the order it was asked for.
+ */
+public class ContentPacks {
+
+    private static final String LOG_TAG = ContentPacks.class.getSimpleName();
+
+    /** Name of the directory of the app's files where packs are installed */
+    public static final String DIRECTORY_NAME = "packs";
+
+    /** Extension of the pack files */
+    public static final String FILE_EXTENSION = ".pack";
+
+    /* Extension of a pack while it is being installed */
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+
+    /* Size of the buffer between the source and the checks of the pack */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Receives the result of an install.
+     */
+    public interface InstallCallback {
+
+        /**
+         * Called on the main thread once the pack has been installed and opened.
+         */
+        void onPackInstalled(ContentPack pack);
+
+        /**
+         * Called on the main thread when the pack could not be installed. Nothing was changed.
+         */
+        void onInstallFailed(File source, IOException e);
+    }
+
+    /**
+     * Receives the result of installing the packs pushed to the device.
+     */
+    public interface LocalInstallCallback extends InstallCallback {
+
+        /**
+         * Called on the main thread when there is no pack file to install.
+         */
+        void onNoPacksFound(File directory);
+    }
+
+    /**
+     * Receives the installed packs.
+     */
+    public interface PacksCallback {
+
+        /**
+         * Called on the main thread with every pack that could be opened.
+         */
+        void onPacksLoaded(List<ContentPack> packs);
+    }
+
+    /**
+     * Receives the words of a category of a pack.
+     */
+    public interface WordsCallback {
+
+        /**
+         * Called on the main thread with the pack and the words, or with nulls if the pack or
+         * the category is not installed anymore.
+         */
+        void onWordsLoaded(ContentPack pack, WordTable words);
+    }
+
+    private static ContentPacks sInstance;
+
+    private final Context mContext;
+
+    /* Runs every install and open, in the order they were asked for */
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "ContentPacks");
+                }
+            });
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /* Packs that have been opened, only touched on the executor. Null until they are loaded. */
+    private ArrayList<ContentPack> mPacks;
+
+    /*
+     * Pack and entry of every image of the opened packs, the image ID -2 being the first one.
+     * Images of packs that were closed are left as null. Guarded by itself, as the images are
+     * opened on the decode thread of WordImageLoader.
+     */
+    private final ArrayList<PackImage> mImages = new ArrayList<>();
+
+    /**
+     * Returns the app wide {@link ContentPacks}
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized ContentPacks getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ContentPacks(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ContentPacks(Context context) {
+        mContext = context;
+    }
+
+    /**
+     * Open every installed pack in the background, the first time it is called.
+     *
+     * @param callback receives the packs on the main thread
+     */
+    public void loadPacks(final PacksCallback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<ContentPack> packs = Collections.unmodifiableList(
+                        new ArrayList<>(openPacks()));
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onPacksLoaded(packs);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Decode the words of a category of an installed pack in the background.
+     *
+     * @param packName is the name of the pack
+     * @param category is the name of the category in the vocabulary of the pack
+     * @param callback receives the words on the main thread
+     */
+    public void loadWords(final String packName, final String category,
+                          final WordsCallback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                ContentPack found = null;
+                WordTable words = null;
+                for (ContentPack pack : openPacks()) {
+                    if (pack.getName().equals(packName)
+                            && pack.getVocabulary().findCategory(category) >= 0) {
+                        found = pack;
+                        words = pack.loadWords(category);
+                    }
+                }
+                final ContentPack loadedPack = found;
+                final WordTable loadedWords = words;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onWordsLoaded(loadedPack, loadedWords);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Install the pack held by the given file in the background, replacing the installed pack
+     * with the same name, if any. The pack is named after the file, without its extension.
+     *
+     * A pack that is replaced is closed: the clips and images of the words it handed out are
+     * not found anymore, so the categories of the pack must be loaded again.
+     *
+     * @param source is a local file, which is only read
+     * @param callback receives the result on the main thread
+     */
+    public void install(final File source, final InstallCallback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final ContentPack pack = installPack(source);
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onPackInstalled(pack);
+                        }
+                    });
+                } catch (final IOException e) {
+                    Log.e(LOG_TAG, "Could not install content pack " + source, e);
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onInstallFailed(source, e);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Install every pack file pushed to the packs directory of the app's external files, in
+     * the background, as if {@link #install(File, InstallCallback)} was called for each of them.
+     * This is how packs are loaded from local files until they can be downloaded, such as after:
+     *
+     *   adb push animals.pack /sdcard/Android/data/com.example.android.miwok/files/packs/
+     *
+     * @param callback receives the result of each install on the main thread, or is told that
+     *                 there was nothing to install
+     */
+    public void installLocalPacks(final LocalInstallCallback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final File directory = mContext.getExternalFilesDir(DIRECTORY_NAME);
+                File[] files = directory == null ? null : directory.listFiles();
+                boolean found = false;
+                if (files != null) {
+                    for (File file : files) {
+                        if (file.getName().endsWith(FILE_EXTENSION)) {
+                            install(file, callback);
+                            found = true;
+                        }
+                    }
+                }
+                if (!found) {
+                    Log.w(LOG_TAG, "No local content packs in " + directory);
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onNoPacksFound(directory);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns true if the given image ID is that of an image of a content pack, rather than a
+     * drawable resource ID
+     */
+    public static boolean isPackImage(int imageId) {
+        return imageId < WordTable.NO_IMAGE;
+    }
+
+    /**
+     * Returns a stream over the image with the given ID, read in place from its pack, or null if
+     * its pack was closed. This may be called from any thread.
+     *
+     * @param imageId is an ID for which {@link #isPackImage(int)} is true
+     */
+    public InputStream openImage(int imageId) {
+        PackImage image;
+        synchronized (mImages) {
+            int index = WordTable.NO_IMAGE - 1 - imageId;
+            image = index >= 0 && index < mImages.size() ? mImages.get(index) : null;
+        }
+        return image == null ? null : image.mPack.openImage(image.mEntry);
+    }
+
+    /**
+     * Register the image held by the given entry of a pack that is being opened
+     *
+     * @return the image ID of the image
+     */
+    int addImage(ContentPack pack, int entry) {
+        synchronized (mImages) {
+            mImages.add(new PackImage(pack, entry));
+            return WordTable.NO_IMAGE - mImages.size();
+        }
+    }
+
+    /**
+     * Forget an image of a pack that is being closed. Its ID is not handed out again.
+     */
+    void removeImage(int imageId) {
+        synchronized (mImages) {
+            mImages.set(WordTable.NO_IMAGE - 1 - imageId, null);
+        }
+    }
+
+    /**
+     * Returns the directory where packs are installed
+     */
+    private File getDirectory() {
+        return new File(mContext.getFilesDir(), DIRECTORY_NAME);
+    }
+
+    private ContentPack installPack(File source) throws IOException {
+        // Open the installed packs first, so the new one is not opened twice
+        ArrayList<ContentPack> packs = openPacks();
+
+        String name = source.getName();
+        if (name.endsWith(FILE_EXTENSION)) {
+            name = name.substring(0, name.length() - FILE_EXTENSION.length());
+        }
+        File directory = getDirectory();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File temporary = new File(directory, name + TEMPORARY_EXTENSION);
+        File installed = new File(directory, name + FILE_EXTENSION);
+
+        InputStream in = null;
+        FileOutputStream out = null;
+        boolean copied = false;
+        try {
+            in = new BufferedInputStream(new FileInputStream(source), BUFFER_SIZE);
+            out = new FileOutputStream(temporary);
+            ContentPackFile.copy(in, out);
+            // Make sure the pack is on disk before it replaces the installed one
+            out.getFD().sync();
+            out.close();
+            out = null;
+            checkPack(temporary);
+            copied = true;
+        } finally {
+            close(in);
+            close(out);
+            if (!copied && !temporary.delete()) {
+                Log.w(LOG_TAG, "Could not delete " + temporary);
+            }
+        }
+
+        if (!temporary.renameTo(installed)) {
+            temporary.delete();
+            throw new IOException("Could not install " + installed);
+        }
+
+        ContentPack pack = ContentPack.open(name, installed, this,
+                AudioBundles.getInstance(mContext));
+        for (int i = packs.size() - 1; i >= 0; i--) {
+            if (packs.get(i).getName().equals(name)) {
+                // Its file was replaced, but it still holds the old one open
+                packs.remove(i).close();
+            }
+        }
+        packs.add(pack);
+        return pack;
+    }
+
+    /**
+     * Check the structure of a pack whose data was already checked by
+     * {@link ContentPackFile#copy(InputStream, OutputStream)}: a pack can carry valid
+     * checksums and still point outside of itself, and it must be rejected before it is
+     * installed rather than fail every time it is opened.
+     */
+    private static void checkPack(File file) throws IOException {
+        FileInputStream stream = new FileInputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            new ContentPackFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()))
+                    .getVocabulary();
+        } catch (RuntimeException e) {
+            throw new IOException("Content pack " + file + " is malformed", e);
+        } finally {
+            close(stream);
+        }
+    }
+
+    /**
+     * Returns the opened packs, opening the installed ones the first time. Packs that can not
+     * be opened are left out.
+     */
+    private ArrayList<ContentPack> openPacks() {
+        if (mPacks != null) {
+            return mPacks;
+        }
+        mPacks = new ArrayList<>();
+        File[] files = getDirectory().listFiles();
+        if (files == null) {
+            return mPacks;
+        }
+        AudioBundles audioBundles = AudioBundles.getInstance(mContext);
+        for (File file : files) {
+            String fileName = file.getName();
+            if (fileName.endsWith(TEMPORARY_EXTENSION)) {
+                // Left over by an install that was cut short by the process dying
+                file.delete();
+                continue;
+            }
+            if (!fileName.endsWith(FILE_EXTENSION)) {
+                continue;
+            }
+            String name = fileName.substring(0, fileName.length() - FILE_EXTENSION.length());
+            try {
+                mPacks.add(ContentPack.open(name, file, this, audioBundles));
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Could not open content pack " + file, e);
+            }
+        }
+        return mPacks;
+    }
+
+    private static void close(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Could not close a content pack stream", e);
+            }
+        }
+    }
+
+    /**
+     * Where an image of a pack is stored.
+     */
+    private static class PackImage {
+
+        private final ContentPack mPack;
+
+        private final int mEntry;
+
+        PackImage(ContentPack pack, int entry) {
+            mPack = pack;
+            mEntry = entry;
+        }
+    }
+}
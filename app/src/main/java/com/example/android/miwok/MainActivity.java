@@ -15,6 +15,7 @@
  */
 package com.example.android.miwok;
 
+import android.content.Context;
 import android.content.Intent;
 import android.media.MediaPlayer;
 import android.os.Bundle;
@@ -23,35 +24,184 @@ import android.support.v4.view.ViewPager;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
 
 public class MainActivity extends AppCompatActivity {
 
+    /* Key of the saved page, which the pager can not restore while it has no pages yet */
+    private static final String STATE_PAGE = "page";
+
+    /* Shows a page per category, of the vocabulary and of the installed content packs */
+    private CategoryAdapter mAdapter;
+
+    /* Swipes between the categories */
+    private ViewPager mViewPager;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        // Measure how long it takes to get the first page on screen
+        StartupTracer.watchFirstFrame(this);
+
         // Set the content of the activity to use the activity_main.xml layout file
+        StartupTracer.beginSection("MainActivity.setContentView");
         setContentView(R.layout.activity_main);
+        StartupTracer.endSection();
 
         // Find the view pager that will allow the user to swipe between fragments
-        ViewPager viewPager = (ViewPager) findViewById(R.id.viewpager);
+        mViewPager = (ViewPager) findViewById(R.id.viewpager);
 
         // Create an adapter that knows which fragment should be shown on each page
-        CategoryAdapter adapter = new CategoryAdapter(getSupportFragmentManager(),
+        StartupTracer.beginSection("MainActivity.createPager");
+        mAdapter = new CategoryAdapter(getSupportFragmentManager(),
                 MainActivity.this);
 
         // Set the adapter onto the view pager
-        viewPager.setAdapter(adapter);
+        mViewPager.setAdapter(mAdapter);
+        StartupTracer.endSection();
+
+        // The categories get their pages once the vocabulary is mapped in the background
+        final int page = savedInstanceState == null ? 0 : savedInstanceState.getInt(STATE_PAGE);
+        WordRepository.getInstance(this).loadVocabulary(new WordRepository.VocabularyCallback() {
+            @Override
+            public void onVocabularyLoaded(Vocabulary vocabulary) {
+                mAdapter.setVocabulary(vocabulary);
+                mViewPager.setCurrentItem(page, false);
+            }
+        });
 
         // Find the TabLayout
         TabLayout tabLayout = (TabLayout) findViewById(R.id.sliding_tabs);
 
         // Connect the TabLayout to ViewPager
-        tabLayout.setupWithViewPager(viewPager);
+        StartupTracer.beginSection("MainActivity.setupTabs");
+        tabLayout.setupWithViewPager(mViewPager);
+        StartupTracer.endSection();
+
+        // The categories of the content packs get their tabs once the packs are opened, which
+        // the first page does not need
+        StartupTracer.runAfterFirstFrame(new Runnable() {
+            @Override
+            public void run() {
+                loadPacks();
+            }
+        });
+    }
+
+    /**
+     * Show the categories of the installed content packs after those of the vocabulary
+     */
+    private void loadPacks() {
+        ContentPacks.getInstance(this).loadPacks(new ContentPacks.PacksCallback() {
+            @Override
+            public void onPacksLoaded(List<ContentPack> packs) {
+                mAdapter.setPacks(packs);
+            }
+        });
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(STATE_PAGE, mViewPager.getCurrentItem());
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_main, menu);
+
+        // The playback metrics and the local content packs are only there for debug builds
+        menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
+        menu.findItem(R.id.action_install_packs).setVisible(BuildConfig.DEBUG);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_search) {
+            // Open the screen that searches every category
+            startActivity(new Intent(this, SearchActivity.class));
+            return true;
+        }
+        if (item.getItemId() == R.id.action_review) {
+            // Open the spaced repetition review of every category
+            startActivity(new Intent(this, ReviewActivity.class));
+            return true;
+        }
+        if (item.getItemId() == R.id.action_metrics) {
+            // Open the playback latency metrics
+            startActivity(new Intent(this, PlaybackMetricsActivity.class));
+            return true;
+        }
+        if (item.getItemId() == R.id.action_install_packs) {
+            installLocalPacks();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Install the content packs pushed to the device, see {@link ContentPacks#installLocalPacks}
+     */
+    private void installLocalPacks() {
+        final Context context = getApplicationContext();
+        ContentPacks.getInstance(this).installLocalPacks(
+                new ContentPacks.LocalInstallCallback() {
+                    @Override
+                    public void onPackInstalled(ContentPack pack) {
+                        VocabularyFile vocabulary = pack.getVocabulary();
+                        Toast.makeText(context, context.getString(R.string.content_pack_installed,
+                                pack.getName(), vocabulary.getCategoryCount(),
+                                vocabulary.getWordCount()), Toast.LENGTH_SHORT).show();
 
+                        // Words loaded from the pack it replaced lost their clips and images
+                        CategoryCache.getInstance(context).evictPack(pack.getName());
+                        loadPacks();
+                    }
+
+                    @Override
+                    public void onInstallFailed(File source, IOException e) {
+                        Toast.makeText(context, context.getString(R.string.content_pack_failed,
+                                source.getName()), Toast.LENGTH_SHORT).show();
+                    }
+
+                    @Override
+                    public void onNoPacksFound(File directory) {
+                        Toast.makeText(context, context.getString(R.string.content_packs_none,
+                                directory), Toast.LENGTH_LONG).show();
+                    }
+                });
     }
 
+    /**
+     * Adds the playback metrics to the activity dump, so they can be read without opening the
+     * metrics screen:
+     *
+     *   adb shell dumpsys activity com.example.android.miwok/.MainActivity
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        PlaybackController.getInstance(this).getMetrics().dump(writer);
+    }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        //when the activity is stopped, release the media player
+        //because we wont need to play anymore sounds
+        PlaybackController.getInstance(this).release();
+    }
 }
@@ -0,0 +1,46 @@
+package com.example.android.miwok;
+
+import android.app.Application;
+import android.os.StrictMode;
+
+/**
+ * {@link MiwokApplication} sets up the app wide state before any activity is created.
+ */
+public class MiwokApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        StartupTracer.markProcessStart();
+        StartupTracer.beginSection("MiwokApplication.onCreate");
+        super.onCreate();
+
+        // In debug builds, report any disk or network access made on the main thread,
+        // so that audio and vocabulary I/O can't creep back onto it unnoticed
+        if (BuildConfig.DEBUG) {
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskReads()
+                    .detectDiskWrites()
+                    .detectNetwork()
+                    .penaltyLog()
+                    .build());
+            StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                    .detectLeakedClosableObjects()
+                    .penaltyLog()
+                    .build());
+        }
+        StartupTracer.endSection();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        // Decoded word images can always be decoded again
+        WordImageLoader.getInstance(this).onTrimMemory(level);
+
+        // The app may be killed once it is in the background, write the plays it still holds
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            PlayLog.getInstance(this).flush();
+        }
+    }
+}
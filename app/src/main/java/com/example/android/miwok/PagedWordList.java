@@ -0,0 +1,178 @@
+package com.example.android.miwok;
+
+import android.util.SparseArray;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * {@link PagedWordList} is the list of {@link Word}s of a category, loaded from the vocabulary
+ * database one page at a time.
+ *
+ * The size of the category and its first page are known when the list is created, so it can be
+ * displayed right away. The other pages are loaded in the background when a row close to them is
+ * asked for, and {@link #get(int)} returns null for a row whose page is not loaded yet. Pages far
+ * from the last row asked for are dropped, so the memory the list takes does not depend on the
+ * size of the category. The words of a page are decoded from its {@link WordTable} the first time
+ * they are asked for and kept with the page, so binding a row again does not decode it again.
+ *
+ * It must only be used from the main thread.
+ */
+public class PagedWordList extends AbstractList<Word> implements RandomAccess {
+
+    /**
+     * Interface definition for a callback to be invoked when rows that were missing have been
+     * loaded.
+     */
+    public interface OnPageLoadedListener {
+
+        /**
+         * Called on the main thread once the given rows can be read.
+         *
+         * @param first is the position of the first loaded row
+         * @param count is the number of loaded rows
+         */
+        void onPageLoaded(int first, int count);
+    }
+
+    /** Number of words loaded at once */
+    public static final int PAGE_SIZE = 50;
+
+    /* Number of pages kept on each side of the page of the last row asked for */
+    private static final int PAGES_KEPT_AROUND = 2;
+
+    /* How close to the end of its page a row must be for the next page to be loaded too */
+    private static final int PREFETCH_DISTANCE = PAGE_SIZE / 2;
+
+    private final WordRepository mRepository;
+
+    /* Name of the category in the vocabulary */
+    private final String mCategory;
+
+    private final int mSize;
+
+    /* Loaded pages by page number, each one a table of its words */
+    private final SparseArray<WordTable> mPages = new SparseArray<>();
+
+    /* Words decoded from each loaded page, by page number, null until a row is asked for */
+    private final SparseArray<Word[]> mPageWords = new SparseArray<>();
+
+    /* Pages whose load has been asked for but has not arrived yet, by page number */
+    private final SparseArray<Boolean> mLoadingPages = new SparseArray<>();
+
+    /* Page of the last row asked for */
+    private int mCurrentPage;
+
+    private OnPageLoadedListener mOnPageLoadedListener;
+
+    /**
+     * Create a new {@link PagedWordList} object.
+     *
+     * @param repository loads the pages
+     * @param category is the name of the category in the vocabulary
+     * @param size is the number of words in the category
+     * @param firstPage holds the words of the first page
+     */
+    PagedWordList(WordRepository repository, String category, int size, WordTable firstPage) {
+        mRepository = repository;
+        mCategory = category;
+        mSize = size;
+        mPages.put(0, firstPage);
+    }
+
+    /**
+     * Register a callback to be invoked when missing rows have been loaded, replacing the
+     * previous one.
+     *
+     * @param listener is the callback, or null to stop being notified
+     */
+    public void setOnPageLoadedListener(OnPageLoadedListener listener) {
+        mOnPageLoadedListener = listener;
+    }
+
+    /**
+     * Returns the word at the given position, or null if it has not been loaded yet. In that
+     * case it is loaded in the background and the {@link OnPageLoadedListener} is notified.
+     */
+    @Override
+    public Word get(int location) {
+        if (location < 0 || location >= mSize) {
+            throw new IndexOutOfBoundsException("Word " + location + " of " + mSize);
+        }
+
+        int page = location / PAGE_SIZE;
+        if (page != mCurrentPage) {
+            mCurrentPage = page;
+            dropFarPages();
+        }
+
+        // Have the neighbouring page ready before the rows get there
+        int offset = location % PAGE_SIZE;
+        if (offset >= PAGE_SIZE - PREFETCH_DISTANCE) {
+            loadPage(page + 1);
+        } else if (offset < PREFETCH_DISTANCE) {
+            loadPage(page - 1);
+        }
+
+        WordTable words = mPages.get(page);
+        if (words == null) {
+            loadPage(page);
+            return null;
+        }
+        // A page comes back short if the database holds fewer rows than it was asked for
+        if (offset >= words.size()) {
+            return null;
+        }
+        Word[] pageWords = mPageWords.get(page);
+        if (pageWords == null) {
+            pageWords = new Word[words.size()];
+            mPageWords.put(page, pageWords);
+        }
+        if (pageWords[offset] == null) {
+            pageWords[offset] = words.get(offset);
+        }
+        return pageWords[offset];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    private void loadPage(final int page) {
+        int first = page * PAGE_SIZE;
+        if (page < 0 || first >= mSize
+                || mPages.get(page) != null || mLoadingPages.get(page) != null) {
+            return;
+        }
+        mLoadingPages.put(page, Boolean.TRUE);
+        final int count = Math.min(PAGE_SIZE, mSize - first);
+        mRepository.loadWords(mCategory, first, count, new WordRepository.WordsCallback() {
+            @Override
+            public void onWordsLoaded(WordTable words) {
+                mLoadingPages.remove(page);
+                if (Math.abs(page - mCurrentPage) > PAGES_KEPT_AROUND) {
+                    // Scrolled away while it was loading
+                    return;
+                }
+                mPages.put(page, words);
+                if (mOnPageLoadedListener != null) {
+                    mOnPageLoadedListener.onPageLoaded(page * PAGE_SIZE, count);
+                }
+            }
+        });
+    }
+
+    /**
+     * Let go of the pages too far from the current one to be scrolled to soon.
+     */
+    private void dropFarPages() {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            int page = mPages.keyAt(i);
+            if (Math.abs(page - mCurrentPage) > PAGES_KEPT_AROUND) {
+                mPages.removeAt(i);
+                mPageWords.remove(page);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * {@link PlayLog} records every pronunciation the user plays, to learn which words are played
+ * and how often.
+ *
+ * Recording a play only stores the word, its category and the time in a {@link PlayBuffer},
+ * without allocating or touching the disk. A background thread drains the buffer in batches,
+ * merges repeated plays of a word into one counter, and appends the batch to the play_log.tsv
+ * file in the app's files directory, one line per word:
+ *
+ *   first play time <tab> last play time <tab> category <tab> clip name <tab> number of plays
+ *
+ * Times are in milliseconds since the epoch. A batch is written at the latest
+ * {@link #FLUSH_DELAY_MS} after its first play, or as soon as it holds {@link #BATCH_SIZE}
+ * plays, so when the process dies at most one batch is lost. The file is only ever appended to;
+ * a line cut short by the process dying while writing it should be skipped by its readers.
+ */
+public class PlayLog {
+
+    private static final String LOG_TAG = PlayLog.class.getSimpleName();
+
+    /** Name of the log file in the app's files directory */
+    public static final String FILE_NAME = "play_log.tsv";
+
+    /** Number of plays that are written together */
+    public static final int BATCH_SIZE = 32;
+
+    /** Longest time a play waits in memory before it is written */
+    public static final long FLUSH_DELAY_MS = 5000;
+
+    /*
+     * Room for the plays of a few batches, in case the disk is slow. If the writer falls that
+     * far behind the oldest plays are overwritten, and counted as dropped.
+     */
+    private static final int CAPACITY = BATCH_SIZE * 8;
+
+    private static PlayLog sInstance;
+
+    private final Context mContext;
+
+    private final Handler mWriterHandler;
+
+    /* Plays that have not been written yet, guarded by this */
+    private final PlayBuffer mBuffer = new PlayBuffer(CAPACITY);
+
+    /* True while a flush is posted to the writer thread */
+    private boolean mFlushPending;
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+
+    /**
+     * Returns the app wide {@link PlayLog}
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized PlayLog getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PlayLog(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private PlayLog(Context context) {
+        mContext = context;
+
+        HandlerThread writerThread = new HandlerThread("PlayLog",
+                Process.THREAD_PRIORITY_BACKGROUND);
+        writerThread.start();
+        mWriterHandler = new Handler(writerThread.getLooper());
+    }
+
+    /**
+     * Record that the pronunciation of a word was played. This never blocks on the disk.
+     *
+     * @param word is the word that was played
+     * @param category is the name of the category it was played from
+     */
+    public void record(Word word, String category) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            // If the writer is behind, the oldest play is dropped to make room
+            if (mBuffer.record(word.getAudioClipId(), category, now) >= BATCH_SIZE) {
+                // A full batch is written right away
+                mWriterHandler.removeCallbacks(mFlushRunnable);
+                mWriterHandler.post(mFlushRunnable);
+                mFlushPending = true;
+            } else if (!mFlushPending) {
+                mWriterHandler.postDelayed(mFlushRunnable, FLUSH_DELAY_MS);
+                mFlushPending = true;
+            }
+        }
+    }
+
+    /**
+     * Write the plays recorded so far without waiting for the batch to fill up, such as when the
+     * app goes to the background and may be killed.
+     */
+    public void flush() {
+        synchronized (this) {
+            if (mBuffer.size() == 0) {
+                return;
+            }
+            mWriterHandler.removeCallbacks(mFlushRunnable);
+            mFlushPending = true;
+        }
+        mWriterHandler.post(mFlushRunnable);
+    }
+
+    /**
+     * Drain the ring buffer and append its plays to the file. Runs on the writer thread.
+     */
+    private void write() {
+        // The plays of each word of each category are merged, in the order they were first
+        // played in
+        List<PlayBuffer.Count> counts;
+        int dropped;
+        synchronized (this) {
+            counts = mBuffer.drain();
+            dropped = mBuffer.takeDropped();
+            mFlushPending = false;
+        }
+
+        if (dropped > 0) {
+            Log.w(LOG_TAG, dropped + " plays were dropped before they could be written");
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        AudioBundles audioBundles = AudioBundles.getInstance(mContext);
+        StringBuilder batch = new StringBuilder();
+        for (PlayBuffer.Count count : counts) {
+            batch.append(count.getFirstTime()).append('\t')
+                    .append(count.getLastTime()).append('\t')
+                    .append(count.getCategory()).append('\t')
+                    .append(audioBundles.getClipName(count.getClipId())).append('\t')
+                    .append(count.getPlays()).append('\n');
+        }
+
+        // The batch is written with a single call, so it is either all in the file or, if the
+        // process dies halfway, ends with one line cut short
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(
+                    new File(mContext.getFilesDir(), FILE_NAME), true), "UTF-8");
+            writer.write(batch.toString());
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not write " + FILE_NAME, e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Could not close " + FILE_NAME, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,709 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link PlaybackController} is the single place in the app that plays pronunciations.
+ * It owns the audio focus, the {@link PronunciationEngine} and one {@link MediaPlayer} that is
+ * reused across taps and tab swipes, so there is never more than one native player alive,
+ * except for the two of the {@link SequencePlayer} while a whole category is played.
+ *
+ * The public methods are called from the main thread and only post work to a dedicated audio
+ * thread, where the player is prepared asynchronously. A play supersedes the plays and
+ * prepares that have not run yet, a touch down only supersedes older prepares, and resetting
+ * the player cancels a prepare that is still in flight.
+ *
+ * Audio focus goes through the FOCUS_ states below. While another app may duck us the clip
+ * keeps playing at {@link #DUCK_VOLUME}. While focus is lost for a short while, such as for a
+ * notification sound, the clip is paused but the player stays prepared, so it starts again as
+ * soon as focus comes back instead of having to prepare the clip all over again. Losing focus
+ * for good stops the clip and gives focus back, but keeps the player for the next clip.
+ */
+public class PlaybackController {
+
+    private static final String LOG_TAG = PlaybackController.class.getSimpleName();
+
+    /**
+     * Interface definition for the callbacks of {@link #playAll(List, OnSequenceListener)},
+     * which are called on the main thread.
+     */
+    public interface OnSequenceListener {
+
+        /**
+         * Called when the pronunciation of the word at the given position starts playing.
+         */
+        void onWordStarted(int position);
+
+        /**
+         * Called when the sequence is over, whether it played every word, failed, or was
+         * stopped by another request.
+         */
+        void onSequenceEnded();
+    }
+
+    /*
+     * How long audio focus is held for a clip played from memory when its duration is unknown.
+     * The engine can not tell us when a clip has finished, and all of our clips are shorter
+     * than this.
+     */
+    private static final long PRELOADED_CLIP_FOCUS_MS = 2500;
+
+    /* How much longer than a clip of known duration audio focus is held */
+    private static final long PRELOADED_CLIP_FOCUS_MARGIN_MS = 150;
+
+    /* Volume of the clips while another app is allowed to duck us */
+    private static final float DUCK_VOLUME = 0.2f;
+
+    /* States of the audio focus */
+    private static final int FOCUS_NONE = 0;
+    private static final int FOCUS_GAINED = 1;
+    private static final int FOCUS_DUCKED = 2;
+    private static final int FOCUS_LOST_TRANSIENT = 3;
+
+    /* States of mMediaPlayer */
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_PREPARING = 1;
+    private static final int STATE_PREPARED = 2;
+    private static final int STATE_STARTED = 3;
+
+    private static PlaybackController sInstance;
+
+    private final Context mContext;
+
+    /* Runs every player operation on the audio thread */
+    private final Handler mAudioHandler;
+
+    /* Token of the play requests posted from the main thread, so newer ones can supersede them */
+    private final Object mPlayToken = new Object();
+
+    /* Token of the speculative prepare requests, which only supersede each other */
+    private final Object mPrepareToken = new Object();
+
+    /* Measures tap-to-sound latency and how much preparing on touch down saves */
+    private final PlaybackMetrics mMetrics = new PlaybackMetrics();
+
+    /* Delivers the callbacks of a sequence on the main thread */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /* Plays the decoded pronunciations, null until the audio thread has created it */
+    private volatile PronunciationEngine mPronunciationEngine;
+
+    /*
+     * The fields below are only touched on the audio thread.
+     */
+
+    /* Manages audio focus, looked up on the audio thread so it stays off the startup path */
+    private AudioManager mAudioManager;
+
+    /* Plays the clips that are not decoded in memory yet, created once and then reused */
+    private MediaPlayer mMediaPlayer;
+
+    /* One of the STATE_ constants */
+    private int mPlayerState = STATE_IDLE;
+
+    /* Clip the player holds or is preparing, 0 if none */
+    private int mPlayerAudioClipId;
+
+    /* True if the player was prepared ahead of a click that has not happened yet */
+    private boolean mSpeculative;
+
+    /* True if the player should start as soon as it is prepared and we have audio focus */
+    private boolean mStartWhenPrepared;
+
+    /* One of the FOCUS_ constants */
+    private int mFocusState = FOCUS_NONE;
+
+    /* Plays every word of a category back to back, null unless it is doing so */
+    private SequencePlayer mSequencePlayer;
+
+    /* Notified as mSequencePlayer goes on */
+    private OnSequenceListener mSequenceListener;
+
+    /* When the player started and finished preparing its clip, in System.nanoTime() */
+    private long mPrepareStartNanos;
+    private long mPrepareEndNanos;
+
+    /* Category of the clip the player holds for a click, null if it was played from elsewhere */
+    private String mPlayCategory;
+
+    /* When the clip the player is about to start was tapped, 0 once it has started */
+    private long mTapNanos;
+
+    /**
+     * This listener gets triggered when the {@link MediaPlayer}
+     * Finishes preparing an audio file
+     */
+    private final MediaPlayer.OnPreparedListener mPreparedListener =
+            new MediaPlayer.OnPreparedListener() {
+                @Override
+                public void onPrepared(MediaPlayer mp) {
+                    mPlayerState = STATE_PREPARED;
+                    mPrepareEndNanos = System.nanoTime();
+                    if (!mSpeculative) {
+                        // A speculative prepare is only measured once a click uses it
+                        mMetrics.recordPrepare(mPlayCategory,
+                                micros(mPrepareEndNanos - mPrepareStartNanos));
+                    }
+                    if (mStartWhenPrepared && mFocusState != FOCUS_LOST_TRANSIENT) {
+                        startPlayer();
+                    }
+                }
+            };
+
+    /**
+     * This listener gets triggered when the {@link MediaPlayer}
+     * Finishes playing an audio file
+     */
+    private final MediaPlayer.OnCompletionListener mCompletionListener =
+            new MediaPlayer.OnCompletionListener() {
+                @Override
+                public void onCompletion(MediaPlayer mp) {
+                    // Now that the sound file has finished playing, get the player ready
+                    // for the next clip and give the audio focus back
+                    handleStop();
+                }
+            };
+
+    /**
+     * This listener gets triggered when the {@link MediaPlayer} fails to prepare or play
+     */
+    private final MediaPlayer.OnErrorListener mErrorListener =
+            new MediaPlayer.OnErrorListener() {
+                @Override
+                public boolean onError(MediaPlayer mp, int what, int extra) {
+                    Log.e(LOG_TAG, "Media player error " + what + ", " + extra);
+                    handleStop();
+                    return true;
+                }
+            };
+
+    /**
+     * This listener gets triggered whenever there is a change in audio focus
+     * (i.e we get a call and audio focus changes from our app to the ringtone)
+     */
+    private final AudioManager.OnAudioFocusChangeListener mAudioFocusChangeListener =
+            new AudioManager.OnAudioFocusChangeListener() {
+                @Override
+                public void onAudioFocusChange(final int focusChange) {
+                    mAudioHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            handleAudioFocusChange(focusChange);
+                        }
+                    });
+                }
+            };
+
+    /* Gives the audio focus back once a clip played from memory is over */
+    private final Runnable mAbandonFocusRunnable = new Runnable() {
+        @Override
+        public void run() {
+            abandonAudioFocus();
+        }
+    };
+
+    /**
+     * Returns the app wide {@link PlaybackController}
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized PlaybackController getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PlaybackController(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private PlaybackController(Context context) {
+        mContext = context;
+
+        HandlerThread audioThread = new HandlerThread("Audio", Process.THREAD_PRIORITY_AUDIO);
+        audioThread.start();
+        mAudioHandler = new Handler(audioThread.getLooper());
+
+        // Looking up the audio service and creating the SoundPool both take time, do it on the
+        // audio thread before any request instead of on the main thread
+        mAudioHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mAudioManager = (AudioManager) mContext.getSystemService(Context.AUDIO_SERVICE);
+                PronunciationEngine engine = PronunciationEngine.getInstance(mContext);
+                engine.setMetrics(mMetrics);
+                mPronunciationEngine = engine;
+            }
+        });
+    }
+
+    /**
+     * Prepare the pronunciation of the given word while the user is still pressing its row,
+     * so that the click only has to start it. Nothing is played until {@link #play(Word)} is
+     * called, and the work is thrown away by {@link #discardSpeculation()}.
+     */
+    public void prepareSpeculatively(Word word) {
+        final int audioClipId = word.getAudioClipId();
+        // A click that has not run yet still has to play, only older touches are forgotten
+        mAudioHandler.removeCallbacksAndMessages(mPrepareToken);
+        post(new Runnable() {
+            @Override
+            public void run() {
+                handlePrepareSpeculatively(audioClipId);
+            }
+        }, mPrepareToken);
+    }
+
+    /**
+     * Throw away the clip prepared by {@link #prepareSpeculatively(Word)}, because the touch
+     * turned into a scroll or was cancelled.
+     */
+    public void discardSpeculation() {
+        // The prepares that have not run yet are thrown away with it. Pending plays are kept,
+        // and the discard itself is never superseded, so it runs after them.
+        mAudioHandler.removeCallbacksAndMessages(mPrepareToken);
+        mAudioHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleDiscardSpeculation();
+            }
+        });
+    }
+
+    /**
+     * Returns the engine that keeps the pronunciations decoded in memory, or null if the audio
+     * thread has not created it yet. It is created there so that the SoundPool is never built
+     * on the main thread.
+     */
+    public PronunciationEngine getPronunciationEngine() {
+        return mPronunciationEngine;
+    }
+
+    /**
+     * Returns the playback latency measured so far, and how much speculative preparation saved.
+     */
+    public PlaybackMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Play the pronunciation of the given word, stopping whatever was playing before.
+     */
+    public void play(Word word) {
+        play(word, null);
+    }
+
+    /**
+     * Play the pronunciation of the given word from a category list, stopping whatever was
+     * playing before. Its latency is measured under that category.
+     *
+     * @param category is the name of the category, or null if the word was not played from one
+     */
+    public void play(Word word, final String category) {
+        final long tapNanos = System.nanoTime();
+        final int audioClipId = word.getAudioClipId();
+        supersedeRequests();
+        post(new Runnable() {
+            @Override
+            public void run() {
+                handlePlay(audioClipId, category, tapNanos);
+            }
+        }, mPlayToken);
+    }
+
+    /**
+     * Play the pronunciations of the given words back to back, without a gap between them,
+     * stopping whatever was playing before. Words without a pronunciation are skipped. Playing
+     * anything else, or {@link #stop()}, ends the sequence.
+     *
+     * @param words are read on the audio thread, so the list must be safe to read from there
+     * @param listener is notified on the main thread as the words are played
+     */
+    public void playAll(final List<Word> words, final OnSequenceListener listener) {
+        // Supersede the requests that have not run yet, but without a request token: a touch
+        // down that follows must not drop the sequence before its listener hears of it
+        supersedeRequests();
+        mAudioHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                handlePlayAll(words, listener);
+            }
+        });
+    }
+
+    /**
+     * Stop the clip that is playing and give the audio focus back.
+     * The media player is kept so that it can be reused for the next clip.
+     */
+    public void stop() {
+        mAudioHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleStop();
+            }
+        });
+    }
+
+    /**
+     * Stop playing and release the native media player. A new one is created the next time a
+     * clip has to be played through it.
+     */
+    public void release() {
+        mAudioHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                handleStop();
+                if (mMediaPlayer != null) {
+                    mMediaPlayer.release();
+                    mMediaPlayer = null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop the play and prepare requests that have not run yet, because a new play supersedes
+     * them.
+     */
+    private void supersedeRequests() {
+        mAudioHandler.removeCallbacksAndMessages(mPlayToken);
+        mAudioHandler.removeCallbacksAndMessages(mPrepareToken);
+    }
+
+    /**
+     * Run a request on the audio thread under the given token, so later requests can drop it
+     * before it runs.
+     */
+    private void post(Runnable request, Object token) {
+        mAudioHandler.postAtTime(request, token, SystemClock.uptimeMillis());
+    }
+
+    private void handlePrepareSpeculatively(int audioClipId) {
+        if (audioClipId == mPlayerAudioClipId
+                || mPronunciationEngine.isLoaded(audioClipId)) {
+            // Nothing left to prepare
+            return;
+        }
+        if (mPlayerState == STATE_STARTED || mSequencePlayer != null) {
+            // Don't cut a clip short for a touch that may never become a click
+            return;
+        }
+
+        handleDiscardSpeculation();
+        if (startPreparing(audioClipId)) {
+            mSpeculative = true;
+        }
+    }
+
+    private void handleDiscardSpeculation() {
+        if (!mSpeculative) {
+            return;
+        }
+        mMetrics.recordSpeculationDiscard();
+        resetPlayer();
+    }
+
+    private void handlePlay(int audioClipId, String category, long tapNanos) {
+        //Keep the player if it is already preparing or prepared with this clip
+        boolean prepared = mSpeculative && audioClipId == mPlayerAudioClipId;
+        if (prepared) {
+            if (mPlayerState == STATE_PREPARED) {
+                long prepareMicros = micros(mPrepareEndNanos - mPrepareStartNanos);
+                mMetrics.recordSpeculationHit(prepareMicros);
+                mMetrics.recordPrepare(category, prepareMicros);
+            } else {
+                // The prepare is measured when it ends
+                mMetrics.recordSpeculationHit(micros(System.nanoTime() - mPrepareStartNanos));
+            }
+            mSpeculative = false;
+            stopPreloadedClip();
+        } else {
+            //Stop the current clip if there is one, because we are about to play a new one
+            handleStop();
+        }
+
+        //Request short-term audio focus
+        long focusStartNanos = System.nanoTime();
+        boolean granted = requestAudioFocus();
+        mMetrics.recordFocusRequest(category, micros(System.nanoTime() - focusStartNanos));
+        if (!granted) {
+            resetPlayer();
+            return;
+        }
+
+        //Play the clip straight from memory if it has already been decoded
+        if (!prepared && mPronunciationEngine.play(audioClipId)) {
+            mMetrics.recordTapToSound(category, micros(System.nanoTime() - tapNanos), true);
+            long durationMs = AudioBundles.getInstance(mContext).getDurationMs(audioClipId);
+            mAudioHandler.postDelayed(mAbandonFocusRunnable,
+                    durationMs == AudioBundles.UNKNOWN_DURATION
+                    ? PRELOADED_CLIP_FOCUS_MS : durationMs + PRELOADED_CLIP_FOCUS_MARGIN_MS);
+            return;
+        }
+
+        if (!prepared && !startPreparing(audioClipId)) {
+            abandonAudioFocus();
+            return;
+        }
+        mPlayCategory = category;
+        mTapNanos = tapNanos;
+
+        if (mPlayerState == STATE_PREPARED) {
+            startPlayer();
+        } else {
+            mStartWhenPrepared = true;
+        }
+    }
+
+    private void handlePlayAll(List<Word> words, final OnSequenceListener listener) {
+        handleStop();
+
+        // Remember where each clip comes from, so the listener can be told which word it is
+        int[] clipIds = new int[words.size()];
+        final int[] positions = new int[words.size()];
+        int count = 0;
+        for (int position = 0; position < words.size(); position++) {
+            int clipId = words.get(position).getAudioClipId();
+            if (clipId != AudioBundles.NO_CLIP) {
+                clipIds[count] = clipId;
+                positions[count] = position;
+                count++;
+            }
+        }
+
+        mSequenceListener = listener;
+        if (count == 0 || !requestAudioFocus()) {
+            stopSequence();
+            return;
+        }
+
+        int[] sequence = new int[count];
+        System.arraycopy(clipIds, 0, sequence, 0, count);
+        mSequencePlayer = new SequencePlayer(mContext, sequence, new SequencePlayer.Listener() {
+            @Override
+            public void onClipStarted(final int index) {
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onWordStarted(positions[index]);
+                    }
+                });
+            }
+
+            @Override
+            public void onSequenceFinished() {
+                handleStop();
+            }
+        });
+        mSequencePlayer.start();
+    }
+
+    private void handleStop() {
+        stopSequence();
+        resetPlayer();
+        stopPreloadedClip();
+    }
+
+    /**
+     * Release the players of the sequence, if any, and tell its listener it is over.
+     */
+    private void stopSequence() {
+        if (mSequencePlayer != null) {
+            mSequencePlayer.release();
+            mSequencePlayer = null;
+        }
+        if (mSequenceListener != null) {
+            final OnSequenceListener listener = mSequenceListener;
+            mSequenceListener = null;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onSequenceEnded();
+                }
+            });
+        }
+    }
+
+    private void handleAudioFocusChange(int focusChange) {
+        if (mFocusState == FOCUS_NONE) {
+            //The change was posted before we gave the audio focus back, it is not ours anymore
+            return;
+        }
+
+        if (focusChange == AudioManager.AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK) {
+            //Another app plays something short over us, keep playing but quieter
+            mFocusState = FOCUS_DUCKED;
+            setVolume(DUCK_VOLUME);
+
+        } else if (focusChange == AudioManager.AUDIOFOCUS_LOSS_TRANSIENT) {
+            //Audio focus has been temporarily lost, pause and rewind the clip so that it starts
+            //from the beginning when we regain audio focus. The player stays prepared, and a
+            //prepare that is still in flight waits for the focus to come back.
+            mFocusState = FOCUS_LOST_TRANSIENT;
+            mPronunciationEngine.stop();
+            if (mSequencePlayer != null) {
+                mSequencePlayer.pause();
+            }
+            if (mPlayerState == STATE_STARTED && mMediaPlayer != null) {
+                mMediaPlayer.pause();
+                mMediaPlayer.seekTo(0);
+                mPlayerState = STATE_PREPARED;
+                mStartWhenPrepared = true;
+            }
+
+        } else if (focusChange == AudioManager.AUDIOFOCUS_LOSS) {
+            //The app has permanently lost audio focus. Stop the clip, but keep the player so
+            //the next clip does not have to create a new one.
+            handleStop();
+
+        } else if (focusChange == AudioManager.AUDIOFOCUS_GAIN) {
+            //The app has regained audio focus after temporarily losing it or being ducked.
+            //The volume is restored first whatever came before, since a duck may have been
+            //followed by a transient loss and the sequence keeps its volume for every clip.
+            int previousState = mFocusState;
+            mFocusState = FOCUS_GAINED;
+            setVolume(1f);
+            if (previousState == FOCUS_LOST_TRANSIENT) {
+                if (mSequencePlayer != null) {
+                    mSequencePlayer.resume();
+                } else if (mStartWhenPrepared && mPlayerState == STATE_PREPARED) {
+                    startPlayer();
+                }
+            }
+        }
+    }
+
+    /**
+     * Request short-term audio focus for a clip.
+     *
+     * @return true if it was granted
+     */
+    private boolean requestAudioFocus() {
+        int result = mAudioManager.requestAudioFocus(mAudioFocusChangeListener,
+                AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN_TRANSIENT);
+        if (result != AudioManager.AUDIOFOCUS_REQUEST_GRANTED) {
+            mFocusState = FOCUS_NONE;
+            return false;
+        }
+        mFocusState = FOCUS_GAINED;
+        setVolume(1f);
+        return true;
+    }
+
+    /**
+     * Give the audio focus back, whether or not we were granted it. This also unregisters the
+     * AudioFocusChangeListener so we don't get anymore callbacks.
+     */
+    private void abandonAudioFocus() {
+        mAudioManager.abandonAudioFocus(mAudioFocusChangeListener);
+        mFocusState = FOCUS_NONE;
+    }
+
+    /**
+     * Set the volume of the clip played from memory, the media player and the sequence.
+     */
+    private void setVolume(float volume) {
+        mPronunciationEngine.setVolume(volume);
+        if (mMediaPlayer != null) {
+            mMediaPlayer.setVolume(volume, volume);
+        }
+        if (mSequencePlayer != null) {
+            mSequencePlayer.setVolume(volume);
+        }
+    }
+
+    /**
+     * Stop the clip played from memory, if any, and give the audio focus back.
+     */
+    private void stopPreloadedClip() {
+        mAudioHandler.removeCallbacks(mAbandonFocusRunnable);
+        mPronunciationEngine.stop();
+        abandonAudioFocus();
+    }
+
+    private void startPlayer() {
+        mStartWhenPrepared = false;
+        //Resetting the player for a new clip also resets its volume
+        float volume = mFocusState == FOCUS_DUCKED ? DUCK_VOLUME : 1f;
+        mMediaPlayer.setVolume(volume, volume);
+        mMediaPlayer.start();
+        mPlayerState = STATE_STARTED;
+
+        // The player starts rendering right away, so this is when the tap is heard
+        if (mTapNanos != 0) {
+            mMetrics.recordTapToSound(mPlayCategory, micros(System.nanoTime() - mTapNanos),
+                    false);
+            mTapNanos = 0;
+        }
+    }
+
+    /**
+     * Return the player to its idle state. This stops a clip that is playing and cancels a
+     * prepare that is still in flight.
+     */
+    private void resetPlayer() {
+        if (mMediaPlayer != null && mPlayerState != STATE_IDLE) {
+            mMediaPlayer.reset();
+        }
+        mPlayerState = STATE_IDLE;
+        mPlayerAudioClipId = 0;
+        mSpeculative = false;
+        mStartWhenPrepared = false;
+        mPlayCategory = null;
+        mTapNanos = 0;
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+
+    /**
+     * Start preparing the given clip in the reusable media player.
+     * {@link #mPreparedListener} is called once it is ready to start.
+     *
+     * @return true if the player has started preparing
+     */
+    private boolean startPreparing(int audioClipId) {
+        if (mMediaPlayer == null) {
+            mMediaPlayer = new MediaPlayer();
+            mMediaPlayer.setOnPreparedListener(mPreparedListener);
+            mMediaPlayer.setOnCompletionListener(mCompletionListener);
+            mMediaPlayer.setOnErrorListener(mErrorListener);
+        } else {
+            // The player may still hold the previous clip
+            resetPlayer();
+        }
+
+        // Seek into the bundle that is already open instead of opening the clip's own file
+        long openStartNanos = System.nanoTime();
+        AudioBundles bundles = AudioBundles.getInstance(mContext);
+        FileDescriptor bundle = bundles.getFileDescriptor(audioClipId);
+        if (bundle == null) {
+            return false;
+        }
+
+        try {
+            mMediaPlayer.setAudioStreamType(AudioManager.STREAM_MUSIC);
+            mMediaPlayer.setDataSource(bundle, bundles.getOffset(audioClipId),
+                    bundles.getLength(audioClipId));
+            mPrepareStartNanos = System.nanoTime();
+            mMetrics.recordOpen(micros(mPrepareStartNanos - openStartNanos));
+            mMediaPlayer.prepareAsync();
+            mPlayerState = STATE_PREPARING;
+            mPlayerAudioClipId = audioClipId;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not prepare clip " + audioClipId, e);
+            mMediaPlayer.reset();
+        }
+        return mPlayerState == STATE_PREPARING;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.android.miwok;
+
+import java.io.PrintWriter;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * {@link PlaybackMetrics} measures how long it takes for a pronunciation to be heard, per
+ * category: from the tap to the start of the audio, how long the media player takes to prepare
+ * a clip, and how long audio focus takes to be granted. It also counts how often a clip
+ * prepared on touch down was actually played, and how much latency that saved.
+ *
+ * Across categories, it measures how long a clip takes to be opened in its bundle and handed to
+ * the media player, and how long the {@link PronunciationEngine} takes to decode a clip into
+ * memory.
+ *
+ * Durations go into {@link LatencyHistogram}s, so recording one never allocates. The metrics
+ * are updated on the audio thread and can be read from any thread, with
+ * {@link #dump(PrintWriter)}.
+ */
+public class PlaybackMetrics {
+
+    /** Category under which plays from outside the category lists are counted */
+    public static final String OTHER_CATEGORY = "other";
+
+    /* Metrics by category, in the order the categories were first played */
+    private final LinkedHashMap<String, CategoryMetrics> mCategories = new LinkedHashMap<>();
+
+    /* Number of clicks that found their clip already prepared */
+    private int mSpeculationHits;
+
+    /* Number of speculative prepares that were thrown away */
+    private int mSpeculationDiscards;
+
+    /* Sum of the prepare times that were taken off the click path */
+    private long mSpeculationSavedMicros;
+
+    /* Time to find a clip in its bundle and set it as the data source of the media player */
+    private final LatencyHistogram mOpen = new LatencyHistogram();
+
+    /* Time from asking the SoundPool to load a clip to the clip being decoded, every category */
+    private final LatencyHistogram mDecode = new LatencyHistogram();
+
+    /**
+     * Record the time from a tap to the start of its clip.
+     *
+     * @param category is the category the clip was played from, or null
+     * @param fromMemory is true if the clip was already decoded in memory
+     */
+    public synchronized void recordTapToSound(String category, long micros, boolean fromMemory) {
+        CategoryMetrics metrics = getCategory(category);
+        metrics.mTapToSound.record(micros);
+        if (fromMemory) {
+            metrics.mPlaysFromMemory++;
+        }
+    }
+
+    /**
+     * Record how long the media player took to prepare a clip.
+     */
+    public synchronized void recordPrepare(String category, long micros) {
+        getCategory(category).mPrepare.record(micros);
+    }
+
+    /**
+     * Record how long a request for audio focus took.
+     */
+    public synchronized void recordFocusRequest(String category, long micros) {
+        getCategory(category).mFocusRequest.record(micros);
+    }
+
+    /**
+     * Record a click that found its clip prepared on touch down.
+     *
+     * @param savedMicros is how long preparing the clip took
+     */
+    public synchronized void recordSpeculationHit(long savedMicros) {
+        mSpeculationHits++;
+        mSpeculationSavedMicros += savedMicros;
+    }
+
+    /**
+     * Record how long a clip took to be opened and handed to the media player, before it is
+     * prepared.
+     */
+    public synchronized void recordOpen(long micros) {
+        mOpen.record(micros);
+    }
+
+    /**
+     * Record how long a clip took to be decoded into memory.
+     */
+    public synchronized void recordDecode(long micros) {
+        mDecode.record(micros);
+    }
+
+    /**
+     * Record a speculative prepare that was never played.
+     */
+    public synchronized void recordSpeculationDiscard() {
+        mSpeculationDiscards++;
+    }
+
+    /**
+     * Forget everything measured so far.
+     */
+    public synchronized void reset() {
+        mCategories.clear();
+        mSpeculationHits = 0;
+        mSpeculationDiscards = 0;
+        mSpeculationSavedMicros = 0;
+        mOpen.reset();
+        mDecode.reset();
+    }
+
+    /**
+     * Print every metric, one category at a time. Times are in milliseconds.
+     */
+    public synchronized void dump(PrintWriter writer) {
+        writer.println("Playback metrics (ms)");
+        if (mCategories.isEmpty()) {
+            writer.println("  Nothing played yet");
+        }
+        for (Map.Entry<String, CategoryMetrics> entry : mCategories.entrySet()) {
+            CategoryMetrics metrics = entry.getValue();
+            writer.println("  " + entry.getKey() + ": " + metrics.mTapToSound.getCount()
+                    + " plays, " + metrics.mPlaysFromMemory + " from memory");
+            dump(writer, "tap to sound", metrics.mTapToSound);
+            dump(writer, "prepare", metrics.mPrepare);
+            dump(writer, "focus request", metrics.mFocusRequest);
+        }
+        writer.println(String.format(Locale.US,
+                "  Speculative prepare: %d hits, %d discarded, %.1f saved (%.1f per hit)",
+                mSpeculationHits, mSpeculationDiscards, millis(mSpeculationSavedMicros),
+                mSpeculationHits == 0 ? 0 : millis(mSpeculationSavedMicros / mSpeculationHits)));
+        writer.println("  Clips opened for the media player: " + mOpen.getCount());
+        dump(writer, "open", mOpen);
+        writer.println("  Clips decoded into memory: " + mDecode.getCount());
+        dump(writer, "decode", mDecode);
+    }
+
+    private static void dump(PrintWriter writer, String name, LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return;
+        }
+        writer.println(String.format(Locale.US,
+                "    %-14s n=%d mean=%.1f p50<=%.1f p90<=%.1f p99<=%.1f max=%.1f", name,
+                histogram.getCount(), millis(histogram.getMeanMicros()),
+                millis(histogram.getPercentileMicros(50)),
+                millis(histogram.getPercentileMicros(90)),
+                millis(histogram.getPercentileMicros(99)),
+                millis(histogram.getMaxMicros())));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private CategoryMetrics getCategory(String category) {
+        if (category == null) {
+            category = OTHER_CATEGORY;
+        }
+        CategoryMetrics metrics = mCategories.get(category);
+        if (metrics == null) {
+            // Only happens the first time a category is played
+            metrics = new CategoryMetrics();
+            mCategories.put(category, metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * The metrics of the plays of one category.
+     */
+    private static class CategoryMetrics {
+
+        private final LatencyHistogram mTapToSound = new LatencyHistogram();
+
+        private final LatencyHistogram mPrepare = new LatencyHistogram();
+
+        private final LatencyHistogram mFocusRequest = new LatencyHistogram();
+
+        private int mPlaysFromMemory;
+    }
+}
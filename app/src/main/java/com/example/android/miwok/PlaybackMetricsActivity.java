@@ -0,0 +1,66 @@
+package com.example.android.miwok;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * {@link PlaybackMetricsActivity} shows the {@link PlaybackMetrics} measured since the app
+ * started, or since they were last reset. It is only reachable from debug builds; the same
+ * metrics can be read from any build with the dump of {@link MainActivity}.
+ */
+public class PlaybackMetricsActivity extends AppCompatActivity {
+
+    private TextView mMetricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        // Set the content of the activity to use the activity_playback_metrics.xml layout file
+        setContentView(R.layout.activity_playback_metrics);
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        mMetricsTextView = (TextView) findViewById(R.id.metrics);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        // Words may have been played since the screen was last shown
+        showMetrics();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_reset_metrics) {
+            PlaybackController.getInstance(this).getMetrics().reset();
+            showMetrics();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showMetrics() {
+        StringWriter text = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        PlaybackController.getInstance(this).getMetrics().dump(writer);
+        writer.flush();
+        mMetricsTextView.setText(text.toString());
+    }
+}
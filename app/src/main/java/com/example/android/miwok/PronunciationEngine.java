@@ -0,0 +1,414 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.SoundPool;
+import android.os.Build;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.io.FileDescriptor;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link PronunciationEngine} keeps the pronunciation clips of a category decoded in memory
+ * with a {@link SoundPool}, so that playing a word only has to start an already decoded sample
+ * instead of opening, parsing and preparing a clip on every tap.
+ *
+ * Clips are loaded one at a time on behalf of a category, as {@link AudioPrefetcher} reaches
+ * them. The engine has a hard memory budget and when a new clip does not fit, the least
+ * recently used categories are evicted until it does.
+ */
+public class PronunciationEngine {
+
+    private static final String LOG_TAG = PronunciationEngine.class.getSimpleName();
+
+    /** Default amount of decoded audio the engine is allowed to keep in memory */
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 8 * 1024 * 1024;
+
+    /*
+     * Our clips are processed at build time into mono 22.05kHz audio (see audio.gradle),
+     * which decodes to 16-bit PCM.
+     */
+    private static final int DECODED_BYTES_PER_SECOND = 22050 * 2;
+
+    /*
+     * Used when the duration of a clip is unknown. A compressed clip of ours is never more than
+     * about a tenth of its decoded size.
+     */
+    private static final int DECODED_SIZE_RATIO = 10;
+
+    /* Only one pronunciation is heard at a time */
+    private static final int MAX_STREAMS = 1;
+
+    /* Value SoundPool returns from play() when a sample could not be started */
+    private static final int NO_STREAM = 0;
+
+    private static PronunciationEngine sInstance;
+
+    private final Context mContext;
+
+    private final SoundPool mSoundPool;
+
+    /* Maximum number of decoded bytes kept in memory */
+    private final long mMemoryBudgetBytes;
+
+    /* Estimated number of decoded bytes currently loaded */
+    private long mLoadedBytes;
+
+    /* Stream ID of the clip that was played last */
+    private int mStreamId = NO_STREAM;
+
+    /* Volume clips are played at, lowered while another app ducks us */
+    private float mVolume = 1f;
+
+    /* Maps a clip ID to its SoundPool sample ID */
+    private final SparseIntArray mSampleIds = new SparseIntArray();
+
+    /* Maps a SoundPool sample ID back to its clip ID, while the sample is loaded */
+    private final SparseIntArray mSampleClipIds = new SparseIntArray();
+
+    /* Maps a SoundPool sample ID to the System.nanoTime() it was loaded at, until it is decoded */
+    private final SparseArray<Long> mLoadStartNanos = new SparseArray<>();
+
+    /* Records how long clips take to decode, null if nothing measures them */
+    private PlaybackMetrics mMetrics;
+
+    /* Maps a SoundPool sample ID to 1 once it has finished decoding */
+    private final SparseIntArray mDecodedSamples = new SparseIntArray();
+
+    /* Loaded categories, ordered from least to most recently used */
+    private final LinkedHashMap<String, LoadedCategory> mCategories =
+            new LinkedHashMap<>(4, 0.75f, true);
+
+    /**
+     * Returns the app wide {@link PronunciationEngine}
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized PronunciationEngine getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PronunciationEngine(context.getApplicationContext(),
+                    DEFAULT_MEMORY_BUDGET_BYTES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Create a new {@link PronunciationEngine} object.
+     *
+     * @param context is the application context used to reach the audio bundles
+     * @param memoryBudgetBytes is the maximum amount of decoded audio to keep in memory
+     */
+    PronunciationEngine(Context context, long memoryBudgetBytes) {
+        mContext = context;
+        mMemoryBudgetBytes = memoryBudgetBytes;
+        mSoundPool = createSoundPool();
+        mSoundPool.setOnLoadCompleteListener(new SoundPool.OnLoadCompleteListener() {
+            @Override
+            public void onLoadComplete(SoundPool soundPool, int sampleId, int status) {
+                synchronized (PronunciationEngine.this) {
+                    int audioClipId = mSampleClipIds.get(sampleId, AudioBundles.NO_CLIP);
+                    if (audioClipId == AudioBundles.NO_CLIP) {
+                        // The clip was unloaded while it was decoding
+                        return;
+                    }
+                    Long startNanos = mLoadStartNanos.get(sampleId);
+                    mLoadStartNanos.remove(sampleId);
+
+                    // A status of 0 means the sample was decoded successfully
+                    if (status == 0) {
+                        mDecodedSamples.put(sampleId, 1);
+                        if (mMetrics != null && startNanos != null) {
+                            mMetrics.recordDecode((System.nanoTime() - startNanos) / 1000);
+                        }
+                    } else {
+                        Log.w(LOG_TAG, "Could not decode clip " + audioClipId);
+                        forget(audioClipId);
+                    }
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private static SoundPool createSoundPool() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            AudioAttributes attributes = new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_MEDIA)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                    .build();
+            return new SoundPool.Builder()
+                    .setMaxStreams(MAX_STREAMS)
+                    .setAudioAttributes(attributes)
+                    .build();
+        }
+        return new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
+    }
+
+    /**
+     * Record how long each clip loaded from now on takes to decode in the given metrics.
+     */
+    public synchronized void setMetrics(PlaybackMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * Decode a single pronunciation clip in the background so it is ready to be played.
+     * This may be called from any thread.
+     *
+     * @param category is the name of the category the clip belongs to
+     * @param audioClipId is the ID of the clip, see {@link AudioBundles}
+     */
+    public synchronized void loadClip(String category, int audioClipId) {
+        LoadedCategory loadedCategory = mCategories.get(category);
+        if (loadedCategory == null) {
+            loadedCategory = new LoadedCategory();
+            mCategories.put(category, loadedCategory);
+        }
+
+        if (mSampleIds.get(audioClipId, 0) != 0) {
+            // The clip is already loaded, possibly by another category
+            return;
+        }
+
+        long decodedBytes = estimateDecodedBytes(audioClipId);
+        if (!makeRoomFor(decodedBytes, loadedCategory)) {
+            Log.w(LOG_TAG, "Clip " + audioClipId + " does not fit in the memory budget");
+            return;
+        }
+
+        // The clip is read from the bundle that is already open, no file is opened for it
+        AudioBundles bundles = AudioBundles.getInstance(mContext);
+        FileDescriptor bundle = bundles.getFileDescriptor(audioClipId);
+        if (bundle == null) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        int sampleId = mSoundPool.load(bundle, bundles.getOffset(audioClipId),
+                bundles.getLength(audioClipId), 1);
+        if (sampleId == 0) {
+            // Nothing was loaded, so nothing takes room in the budget
+            Log.w(LOG_TAG, "Could not load clip " + audioClipId);
+            return;
+        }
+        mSampleIds.put(audioClipId, sampleId);
+        mSampleClipIds.put(sampleId, audioClipId);
+        mLoadStartNanos.put(sampleId, startNanos);
+        mLoadedBytes += decodedBytes;
+        loadedCategory.add(audioClipId, decodedBytes);
+    }
+
+    /**
+     * Returns true if the given clip is decoded and can be played right away.
+     */
+    public synchronized boolean isLoaded(int audioClipId) {
+        int sampleId = mSampleIds.get(audioClipId, 0);
+        return sampleId != 0 && mDecodedSamples.get(sampleId, 0) != 0;
+    }
+
+    /**
+     * Play the pronunciation with the given clip ID.
+     *
+     * @return true if the clip was already decoded and has started playing, false if the caller
+     * has to fall back to another way of playing it
+     */
+    public synchronized boolean play(int audioClipId) {
+        if (!isLoaded(audioClipId)) {
+            return false;
+        }
+        mStreamId = mSoundPool.play(mSampleIds.get(audioClipId), mVolume, mVolume, 1, 0, 1f);
+        return mStreamId != NO_STREAM;
+    }
+
+    /**
+     * Change the volume of the clip that is playing, if any, and of the clips played after it.
+     *
+     * @param volume is between 0 and 1
+     */
+    public synchronized void setVolume(float volume) {
+        mVolume = volume;
+        if (mStreamId != NO_STREAM) {
+            mSoundPool.setVolume(mStreamId, volume, volume);
+        }
+    }
+
+    /**
+     * Stop the clip that is currently playing, if any.
+     */
+    public synchronized void stop() {
+        if (mStreamId != NO_STREAM) {
+            mSoundPool.stop(mStreamId);
+            mStreamId = NO_STREAM;
+        }
+    }
+
+    /**
+     * Unload every clip and release the underlying {@link SoundPool}. The engine can not be used
+     * after this has been called.
+     */
+    public synchronized void release() {
+        mSoundPool.release();
+        mCategories.clear();
+        mSampleIds.clear();
+        mSampleClipIds.clear();
+        mLoadStartNanos.clear();
+        mDecodedSamples.clear();
+        mLoadedBytes = 0;
+        synchronized (PronunciationEngine.class) {
+            if (sInstance == this) {
+                sInstance = null;
+            }
+        }
+    }
+
+    /**
+     * Evict least recently used categories until the given amount of bytes fits in the budget.
+     * If that is not enough, the oldest clips of the category being loaded are evicted as well.
+     *
+     * @return false if the bytes can not fit even with every other clip evicted
+     */
+    private boolean makeRoomFor(long decodedBytes, LoadedCategory loadingCategory) {
+        Iterator<Map.Entry<String, LoadedCategory>> iterator = mCategories.entrySet().iterator();
+        while (mLoadedBytes + decodedBytes > mMemoryBudgetBytes && iterator.hasNext()) {
+            Map.Entry<String, LoadedCategory> eldest = iterator.next();
+            if (eldest.getValue() == loadingCategory) {
+                continue;
+            }
+            Log.v(LOG_TAG, "Evicting category " + eldest.getKey());
+            iterator.remove();
+            unload(eldest.getValue());
+        }
+
+        while (mLoadedBytes + decodedBytes > mMemoryBudgetBytes && !loadingCategory.isEmpty()) {
+            unloadClip(loadingCategory.peekOldest());
+            mLoadedBytes -= loadingCategory.removeOldest();
+        }
+        return mLoadedBytes + decodedBytes <= mMemoryBudgetBytes;
+    }
+
+    private void unload(LoadedCategory loadedCategory) {
+        while (!loadedCategory.isEmpty()) {
+            unloadClip(loadedCategory.peekOldest());
+            mLoadedBytes -= loadedCategory.removeOldest();
+        }
+    }
+
+    private void unloadClip(int audioClipId) {
+        int sampleId = mSampleIds.get(audioClipId, 0);
+        if (sampleId != 0) {
+            mSoundPool.unload(sampleId);
+            mSampleIds.delete(audioClipId);
+            mSampleClipIds.delete(sampleId);
+            mLoadStartNanos.delete(sampleId);
+            mDecodedSamples.delete(sampleId);
+        }
+    }
+
+    /**
+     * Unload a clip that failed to decode and give the room it was taking back to the budget.
+     */
+    private void forget(int audioClipId) {
+        unloadClip(audioClipId);
+        for (LoadedCategory loadedCategory : mCategories.values()) {
+            long decodedBytes = loadedCategory.remove(audioClipId);
+            if (decodedBytes >= 0) {
+                mLoadedBytes -= decodedBytes;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Estimate how much memory the decoded PCM of a clip takes.
+     */
+    private long estimateDecodedBytes(int audioClipId) {
+        AudioBundles bundles = AudioBundles.getInstance(mContext);
+        long durationMs = bundles.getDurationMs(audioClipId);
+        if (durationMs != AudioBundles.UNKNOWN_DURATION) {
+            return durationMs * DECODED_BYTES_PER_SECOND / 1000;
+        }
+        return bundles.getLength(audioClipId) * DECODED_SIZE_RATIO;
+    }
+
+    /**
+     * The clips loaded on behalf of a single category, from oldest to newest,
+     * and the memory each of them takes.
+     */
+    private static class LoadedCategory {
+
+        private int[] mAudioClipIds = new int[16];
+
+        private long[] mDecodedBytes = new long[16];
+
+        /* Index of the oldest clip */
+        private int mStart;
+
+        /* Index after the newest clip */
+        private int mEnd;
+
+        void add(int audioClipId, long decodedBytes) {
+            if (mEnd == mAudioClipIds.length) {
+                // Compact the evicted slots away and grow if we are still full
+                int count = mEnd - mStart;
+                int capacity = count * 2 > mAudioClipIds.length
+                        ? mAudioClipIds.length * 2 : mAudioClipIds.length;
+                mAudioClipIds = copy(mAudioClipIds, mStart, count, capacity);
+                mDecodedBytes = copy(mDecodedBytes, mStart, count, capacity);
+                mStart = 0;
+                mEnd = count;
+            }
+            mAudioClipIds[mEnd] = audioClipId;
+            mDecodedBytes[mEnd] = decodedBytes;
+            mEnd++;
+        }
+
+        boolean isEmpty() {
+            return mStart == mEnd;
+        }
+
+        int peekOldest() {
+            return mAudioClipIds[mStart];
+        }
+
+        /**
+         * Forget the oldest clip and return the number of bytes it was taking.
+         */
+        long removeOldest() {
+            return mDecodedBytes[mStart++];
+        }
+
+        /**
+         * Forget the given clip and return the number of bytes it was taking, or -1 if the
+         * category does not hold it.
+         */
+        long remove(int audioClipId) {
+            for (int i = mStart; i < mEnd; i++) {
+                if (mAudioClipIds[i] == audioClipId) {
+                    long decodedBytes = mDecodedBytes[i];
+                    System.arraycopy(mAudioClipIds, i + 1, mAudioClipIds, i, mEnd - i - 1);
+                    System.arraycopy(mDecodedBytes, i + 1, mDecodedBytes, i, mEnd - i - 1);
+                    mEnd--;
+                    return decodedBytes;
+                }
+            }
+            return -1;
+        }
+
+        private static int[] copy(int[] source, int start, int count, int capacity) {
+            int[] copy = new int[capacity];
+            System.arraycopy(source, start, copy, 0, count);
+            return copy;
+        }
+
+        private static long[] copy(long[] source, int start, int count, int capacity) {
+            long[] copy = new long[capacity];
+            System.arraycopy(source, start, copy, 0, count);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.android.miwok;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+/**
+ * {@link ReviewActivity} is a spaced repetition review of the words of every category. It shows
+ * the Miwok word that is due first, reveals its translation and pronunciation when asked, and
+ * schedules it again according to how well the user says they remembered it.
+ *
+ * Scheduling is done by {@link ReviewScheduler}, so picking the next word and recording an
+ * answer take the same short time however large the vocabulary is.
+ */
+public class ReviewActivity extends AppCompatActivity {
+
+    /* Whether the answer of the current card is shown, kept across configuration changes */
+    private static final String STATE_REVEALED = "revealed";
+
+    /* Grades given by the answer buttons, see ReviewScheduler */
+    private static final int GRADE_AGAIN = 1;
+    private static final int GRADE_HARD = 3;
+    private static final int GRADE_GOOD = 4;
+    private static final int GRADE_EASY = ReviewScheduler.GRADE_PERFECT;
+
+    private WordRepository mRepository;
+
+    /* Schedule of every word, null until it has been loaded */
+    private ReviewScheduler mScheduler;
+
+    /* Card being reviewed, which is the index of its word in the vocabulary, or -1 */
+    private int mCard = -1;
+
+    /* Word of the current card */
+    private Word mWord;
+
+    private boolean mRevealed;
+
+    private View mCardView;
+    private ImageView mImageView;
+    private TextView mMiwokTextView;
+    private TextView mDefaultTextView;
+    private View mEmptyView;
+    private View mShowAnswerButton;
+    private View mGrades;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        // Set the content of the activity to use the activity_review.xml layout file
+        setContentView(R.layout.activity_review);
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        mCardView = findViewById(R.id.card);
+        mImageView = (ImageView) findViewById(R.id.image);
+        mMiwokTextView = (TextView) findViewById(R.id.miwok_text_view);
+        mDefaultTextView = (TextView) findViewById(R.id.default_text_view);
+        mEmptyView = findViewById(R.id.empty_view);
+        mShowAnswerButton = findViewById(R.id.show_answer);
+        mGrades = findViewById(R.id.grades);
+
+        mShowAnswerButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                reveal(true);
+            }
+        });
+        setGradeListener(R.id.grade_again, GRADE_AGAIN);
+        setGradeListener(R.id.grade_hard, GRADE_HARD);
+        setGradeListener(R.id.grade_good, GRADE_GOOD);
+        setGradeListener(R.id.grade_easy, GRADE_EASY);
+
+        final boolean revealed = savedInstanceState != null
+                && savedInstanceState.getBoolean(STATE_REVEALED);
+
+        // Nothing is shown until the schedule has been loaded in the background
+        mCardView.setVisibility(View.INVISIBLE);
+        mShowAnswerButton.setVisibility(View.GONE);
+        mRepository = WordRepository.getInstance(this);
+        mRepository.loadReviewScheduler(new WordRepository.ReviewSchedulerCallback() {
+            @Override
+            public void onReviewSchedulerLoaded(ReviewScheduler scheduler) {
+                if (isFinishing()) {
+                    return;
+                }
+                mScheduler = scheduler;
+                showNextCard();
+                if (revealed && mWord != null) {
+                    // Back from a configuration change, the pronunciation was already played
+                    reveal(false);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putBoolean(STATE_REVEALED, mRevealed);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        //when the activity is stopped, release the media player
+        //because we wont need to play anymore sounds
+        PlaybackController.getInstance(this).release();
+    }
+
+    private void setGradeListener(int buttonId, final int grade) {
+        findViewById(buttonId).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                answer(grade);
+            }
+        });
+    }
+
+    /**
+     * Show the word of the card that is due first, or say that nothing is due.
+     */
+    private void showNextCard() {
+        mRevealed = false;
+        mCard = mScheduler.nextDue(System.currentTimeMillis());
+        mGrades.setVisibility(View.GONE);
+        WordImageLoader.getInstance(this).clear(mImageView);
+        mImageView.setVisibility(View.INVISIBLE);
+        mDefaultTextView.setVisibility(View.INVISIBLE);
+
+        if (mCard < 0) {
+            mWord = null;
+            mCardView.setVisibility(View.INVISIBLE);
+            mShowAnswerButton.setVisibility(View.GONE);
+            mEmptyView.setVisibility(View.VISIBLE);
+            return;
+        }
+
+        mWord = Vocabulary.getInstance(this).getWord(mCard);
+        mMiwokTextView.setText(mWord.getMiwokTranslation());
+        mDefaultTextView.setText(mWord.getDefaultTranslation());
+        mCardView.setVisibility(View.VISIBLE);
+        mShowAnswerButton.setVisibility(View.VISIBLE);
+        mEmptyView.setVisibility(View.GONE);
+    }
+
+    /**
+     * Show the translation and the image of the current word, and let the user grade the
+     * answer.
+     *
+     * @param play is true to also play the pronunciation
+     */
+    private void reveal(boolean play) {
+        mRevealed = true;
+        mDefaultTextView.setVisibility(View.VISIBLE);
+        if (mWord.hasImage()) {
+            mImageView.setVisibility(View.VISIBLE);
+            WordImageLoader.getInstance(this).load(mWord, mImageView);
+        }
+        mShowAnswerButton.setVisibility(View.GONE);
+        mGrades.setVisibility(View.VISIBLE);
+        if (play) {
+            PlaybackController.getInstance(this).play(mWord);
+        }
+    }
+
+    /**
+     * Schedule the current card according to how well it was remembered and move on.
+     */
+    private void answer(int grade) {
+        if (mCard < 0) {
+            return;
+        }
+        mScheduler.answer(mCard, grade, System.currentTimeMillis());
+        mRepository.saveReview(mScheduler, mCard);
+        showNextCard();
+    }
+}
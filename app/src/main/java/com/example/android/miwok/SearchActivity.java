@@ -0,0 +1,172 @@
+package com.example.android.miwok;
+
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * {@link SearchActivity} lets the user find a word of any category by typing part of its
+ * Miwok or default translation. Results are updated on every keystroke.
+ */
+public class SearchActivity extends AppCompatActivity {
+
+    /* Maximum number of words shown for a query */
+    private static final int MAX_RESULTS = 100;
+
+    /* Holds the words of every category */
+    private Vocabulary mVocabulary;
+
+    /* Index over every word, null until it has been built */
+    private SearchIndex mSearchIndex;
+
+    /* Words matching the current query */
+    private SearchResults mResults = new SearchResults(new int[0]);
+
+    private WordAdapter mAdapter;
+
+    private EditText mQueryEditText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        // Set the content of the activity to use the activity_search.xml layout file
+        setContentView(R.layout.activity_search);
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+
+        // Show the matching words in the list, and play the one the user clicks on
+        int color = ContextCompat.getColor(this, R.color.primary_color);
+        mAdapter = new WordAdapter(this, mResults, color,
+                new WordAdapter.OnWordClickListener() {
+                    @Override
+                    public void onWordClick(Word word, int position) {
+                        PlaybackController.getInstance(SearchActivity.this).play(word);
+                    }
+                });
+        RecyclerView recyclerView = (RecyclerView) findViewById(R.id.list);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(mAdapter);
+
+        // Search again every time the query changes
+        mQueryEditText = (EditText) findViewById(R.id.query);
+        mQueryEditText.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search(s);
+            }
+        });
+
+        // The index is built in the background the first time it is needed
+        WordRepository.getInstance(this).loadSearchIndex(
+                new WordRepository.SearchIndexCallback() {
+                    @Override
+                    public void onSearchIndexLoaded(SearchIndex searchIndex) {
+                        mVocabulary = Vocabulary.getInstance(SearchActivity.this);
+                        mSearchIndex = searchIndex;
+                        search(mQueryEditText.getText());
+                    }
+                });
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        //when the activity is stopped, release the media player
+        //because we wont need to play anymore sounds
+        PlaybackController.getInstance(this).release();
+    }
+
+    private void search(CharSequence query) {
+        if (mSearchIndex == null) {
+            // The query is run once the index is ready
+            return;
+        }
+        // Words found by the previous query that still match keep their rows as they are.
+        // Results are told apart by their word index, so no word is decoded to compare them.
+        SearchResults results = new SearchResults(mSearchIndex.search(query, MAX_RESULTS));
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(
+                new WordIndexDiffCallback(mResults.mWordIndexes, results.mWordIndexes));
+        mResults = results;
+        mAdapter.setWords(results, diff);
+    }
+
+    /**
+     * The words found for a query, decoded from the {@link Vocabulary} when they are
+     * displayed.
+     */
+    private class SearchResults extends AbstractList<Word> implements RandomAccess {
+
+        private final int[] mWordIndexes;
+
+        SearchResults(int[] wordIndexes) {
+            mWordIndexes = wordIndexes;
+        }
+
+        @Override
+        public Word get(int location) {
+            return mVocabulary.getWord(mWordIndexes[location]);
+        }
+
+        @Override
+        public int size() {
+            return mWordIndexes.length;
+        }
+    }
+
+    /**
+     * Compares two lists of results for {@link DiffUtil} by their word index. The vocabulary
+     * does not change, so a word with the same index also has the same content.
+     */
+    private static class WordIndexDiffCallback extends DiffUtil.Callback {
+
+        private final int[] mOldWordIndexes;
+
+        private final int[] mNewWordIndexes;
+
+        WordIndexDiffCallback(int[] oldWordIndexes, int[] newWordIndexes) {
+            mOldWordIndexes = oldWordIndexes;
+            mNewWordIndexes = newWordIndexes;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldWordIndexes.length;
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewWordIndexes.length;
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldWordIndexes[oldItemPosition] == mNewWordIndexes[newItemPosition];
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return true;
+        }
+    }
+}
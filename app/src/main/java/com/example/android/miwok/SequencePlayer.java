@@ -0,0 +1,382 @@
+package com.example.android.miwok;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+
+/**
+ * {@link SequencePlayer} plays a list of clips back to back, such as every word of a category.
+ *
+ * It works with two media players: while one plays clip N, the other prepares clip N+1. From
+ * Jelly Bean on, the prepared player is chained to the playing one with
+ * {@link MediaPlayer#setNextMediaPlayer(MediaPlayer)}, so the framework starts it the moment
+ * the first one ends, without a gap. On older devices, or if the next clip was not ready in
+ * time, it is started from the completion callback of the previous one. Either way no clip has
+ * to wait for a prepare that could have been done while the previous one played.
+ *
+ * A clip that can not be opened or fails to prepare is skipped, and the one after it is
+ * prepared instead.
+ *
+ * A {@link SequencePlayer} is only used on the audio thread of {@link PlaybackController}, and
+ * its {@link Listener} is called on that thread.
+ */
+class SequencePlayer {
+
+    private static final String LOG_TAG = SequencePlayer.class.getSimpleName();
+
+    /**
+     * Interface definition for the callbacks of a sequence.
+     */
+    interface Listener {
+
+        /**
+         * Called when the clip at the given index of the sequence starts playing.
+         */
+        void onClipStarted(int index);
+
+        /**
+         * Called once the last clip has finished, or when the sequence could not go on.
+         * It is not called when the sequence is stopped with {@link #release()}.
+         */
+        void onSequenceFinished();
+    }
+
+    private final Context mContext;
+
+    /* Clips of the sequence, in the order they are played */
+    private final int[] mClipIds;
+
+    private final Listener mListener;
+
+    /* Player of the clip that is playing, or being prepared for the first clip */
+    private MediaPlayer mCurrentPlayer;
+
+    /* Player preparing or holding the clip after it, null until it is needed */
+    private MediaPlayer mNextPlayer;
+
+    /* Index of the clip of mCurrentPlayer, and of mNextPlayer or -1 if it holds none */
+    private int mCurrentIndex;
+    private int mNextIndex = -1;
+
+    /* True once the clip of each player has been prepared */
+    private boolean mCurrentPrepared;
+    private boolean mNextPrepared;
+
+    /* True once the clip of mCurrentPlayer has been started */
+    private boolean mCurrentStarted;
+
+    /* True while mNextPlayer is chained to mCurrentPlayer, to be started by the framework */
+    private boolean mChained;
+
+    /* True once mCurrentPlayer has finished its clip and the next one has to be started by us */
+    private boolean mWaitingForNext;
+
+    /* True while the audio focus is lost for a short while */
+    private boolean mPaused;
+
+    /* Volume of both players, lowered while another app ducks us */
+    private float mVolume = 1f;
+
+    private final MediaPlayer.OnPreparedListener mPreparedListener =
+            new MediaPlayer.OnPreparedListener() {
+                @Override
+                public void onPrepared(MediaPlayer mp) {
+                    if (mp == mCurrentPlayer) {
+                        mCurrentPrepared = true;
+                        if (!mPaused) {
+                            startCurrent();
+                        }
+                    } else if (mp == mNextPlayer) {
+                        mNextPrepared = true;
+                        if (mWaitingForNext) {
+                            // The previous clip is already over, there is nothing to chain to
+                            if (!mPaused) {
+                                advance(false);
+                            }
+                        } else if (!mPaused) {
+                            chainNext();
+                        }
+                    }
+                }
+            };
+
+    private final MediaPlayer.OnCompletionListener mCompletionListener =
+            new MediaPlayer.OnCompletionListener() {
+                @Override
+                public void onCompletion(MediaPlayer mp) {
+                    if (mp != mCurrentPlayer) {
+                        return;
+                    }
+                    if (mNextIndex < 0) {
+                        // That was the last clip
+                        mListener.onSequenceFinished();
+                    } else if (mChained) {
+                        // The framework has already started the next player
+                        advance(true);
+                    } else if (mNextPrepared && !mPaused) {
+                        advance(false);
+                    } else {
+                        mWaitingForNext = true;
+                    }
+                }
+            };
+
+    private final MediaPlayer.OnErrorListener mErrorListener =
+            new MediaPlayer.OnErrorListener() {
+                @Override
+                public boolean onError(MediaPlayer mp, int what, int extra) {
+                    Log.e(LOG_TAG, "Media player error " + what + ", " + extra);
+                    if (mp == mNextPlayer && mNextIndex >= 0) {
+                        skipNext();
+                    } else {
+                        mListener.onSequenceFinished();
+                    }
+                    return true;
+                }
+            };
+
+    /**
+     * Create a sequence of the given clips. Nothing is played until {@link #start()} is called.
+     *
+     * @param clipIds are the clips to play, none of which is {@link AudioBundles#NO_CLIP}
+     * @param listener is called on the audio thread as the sequence goes on
+     */
+    SequencePlayer(Context context, int[] clipIds, Listener listener) {
+        mContext = context;
+        mClipIds = clipIds;
+        mListener = listener;
+    }
+
+    /**
+     * Start preparing the first clip, which plays as soon as it is ready.
+     */
+    void start() {
+        mCurrentPlayer = createPlayer();
+        for (int index = 0; index < mClipIds.length; index++) {
+            if (setClip(mCurrentPlayer, index)) {
+                mCurrentIndex = index;
+                return;
+            }
+        }
+        mListener.onSequenceFinished();
+    }
+
+    /**
+     * Pause the sequence while the audio focus is lost for a short while. The clip that was
+     * playing starts again from its beginning on {@link #resume()}.
+     */
+    void pause() {
+        if (mPaused) {
+            return;
+        }
+        mPaused = true;
+
+        // Keep the framework from starting the next clip while we are paused
+        unchainNext();
+        if (mCurrentStarted && !mWaitingForNext && mCurrentPlayer.isPlaying()) {
+            mCurrentPlayer.pause();
+            mCurrentPlayer.seekTo(0);
+        }
+        if (mNextPrepared && mNextPlayer.isPlaying()) {
+            // The framework already handed over to it, but we have not heard that the current
+            // clip ended yet. Once we do, the next clip waits for resume() to start it again.
+            mNextPlayer.pause();
+            mNextPlayer.seekTo(0);
+        }
+    }
+
+    /**
+     * Go on with the sequence after {@link #pause()}.
+     */
+    void resume() {
+        if (!mPaused) {
+            return;
+        }
+        mPaused = false;
+        if (mWaitingForNext) {
+            if (mNextPrepared) {
+                advance(false);
+            }
+        } else if (mCurrentStarted) {
+            mCurrentPlayer.start();
+            if (mNextPrepared) {
+                chainNext();
+            }
+        } else if (mCurrentPrepared) {
+            startCurrent();
+        }
+    }
+
+    /**
+     * Change the volume of the sequence.
+     *
+     * @param volume is between 0 and 1
+     */
+    void setVolume(float volume) {
+        mVolume = volume;
+        if (mCurrentPlayer != null) {
+            mCurrentPlayer.setVolume(volume, volume);
+        }
+        if (mNextPlayer != null) {
+            mNextPlayer.setVolume(volume, volume);
+        }
+    }
+
+    /**
+     * Stop the sequence and release both players. The sequence can not be started again.
+     */
+    void release() {
+        if (mCurrentPlayer != null) {
+            mCurrentPlayer.release();
+            mCurrentPlayer = null;
+        }
+        if (mNextPlayer != null) {
+            mNextPlayer.release();
+            mNextPlayer = null;
+        }
+    }
+
+    private void startCurrent() {
+        mCurrentPlayer.start();
+        mCurrentStarted = true;
+        mListener.onClipStarted(mCurrentIndex);
+        prepareNext();
+    }
+
+    /**
+     * Make the next player the current one, once the previous clip is over.
+     *
+     * @param started is true if the framework has already started it
+     */
+    private void advance(boolean started) {
+        MediaPlayer finished = mCurrentPlayer;
+        mCurrentPlayer = mNextPlayer;
+        mCurrentIndex = mNextIndex;
+        mCurrentPrepared = true;
+        mCurrentStarted = false;
+        mChained = false;
+        mWaitingForNext = false;
+
+        // The finished player prepares the clip after this one
+        finished.reset();
+        mNextPlayer = finished;
+        mNextIndex = -1;
+        mNextPrepared = false;
+
+        if (started) {
+            mCurrentStarted = true;
+            mListener.onClipStarted(mCurrentIndex);
+            prepareNext();
+        } else {
+            startCurrent();
+        }
+    }
+
+    /**
+     * Start preparing the clip after the current one, if there is one.
+     */
+    private void prepareNext() {
+        prepareNext(mCurrentIndex + 1);
+    }
+
+    /**
+     * Start preparing the first clip from the given index on that can be opened. If there is
+     * none, the sequence stops after the current clip.
+     */
+    private void prepareNext(int index) {
+        if (index >= mClipIds.length) {
+            return;
+        }
+        if (mNextPlayer == null) {
+            mNextPlayer = createPlayer();
+        }
+        for (; index < mClipIds.length; index++) {
+            if (setClip(mNextPlayer, index)) {
+                mNextIndex = index;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Give up on the clip of the next player, which failed, and prepare the one after it.
+     */
+    private void skipNext() {
+        unchainNext();
+        mNextPlayer.reset();
+        int failed = mNextIndex;
+        mNextIndex = -1;
+        mNextPrepared = false;
+        prepareNext(failed + 1);
+
+        if (mNextIndex < 0 && mWaitingForNext) {
+            // The current clip is over and nothing playable is left after it
+            mListener.onSequenceFinished();
+        }
+    }
+
+    /**
+     * Have the framework start the next player as soon as the current one ends.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void chainNext() {
+        if (isChainingSupported()) {
+            mCurrentPlayer.setNextMediaPlayer(mNextPlayer);
+            mChained = true;
+        }
+    }
+
+    /**
+     * Undo {@link #chainNext()}, so the framework does not start the next player on its own.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void unchainNext() {
+        if (mChained) {
+            mCurrentPlayer.setNextMediaPlayer(null);
+            mChained = false;
+        }
+    }
+
+    private static boolean isChainingSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+    }
+
+    private MediaPlayer createPlayer() {
+        MediaPlayer player = new MediaPlayer();
+        player.setOnPreparedListener(mPreparedListener);
+        player.setOnCompletionListener(mCompletionListener);
+        player.setOnErrorListener(mErrorListener);
+        return player;
+    }
+
+    /**
+     * Start preparing the clip at the given index of the sequence in the given idle player.
+     *
+     * @return true if the player has started preparing
+     */
+    private boolean setClip(MediaPlayer player, int index) {
+        int clipId = mClipIds[index];
+        AudioBundles bundles = AudioBundles.getInstance(mContext);
+        FileDescriptor bundle = bundles.getFileDescriptor(clipId);
+        if (bundle == null) {
+            return false;
+        }
+        try {
+            player.setAudioStreamType(AudioManager.STREAM_MUSIC);
+            player.setDataSource(bundle, bundles.getOffset(clipId), bundles.getLength(clipId));
+            player.setVolume(mVolume, mVolume);
+            player.prepareAsync();
+            return true;
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Could not prepare clip " + clipId, e);
+            player.reset();
+            return false;
+        }
+    }
+}
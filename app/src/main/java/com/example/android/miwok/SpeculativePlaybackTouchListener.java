@@ -0,0 +1,120 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+/**
+ * {@link SpeculativePlaybackTouchListener} starts preparing the pronunciation of a row as soon
+ * as the finger goes down on it, instead of waiting for the click that only fires once the
+ * finger is lifted. The prepared clip is discarded when the touch turns into a scroll or is
+ * cancelled.
+ *
+ * It must be attached to the {@link RecyclerView} that displays the words with
+ * {@link #attachTo(RecyclerView)}, and never intercepts touch events so the list keeps
+ * scrolling and clicking as usual.
+ */
+public class SpeculativePlaybackTouchListener extends RecyclerView.OnScrollListener
+        implements RecyclerView.OnItemTouchListener {
+
+    private final PlaybackController mPlaybackController;
+
+    private final WordAdapter mAdapter;
+
+    /* Distance the finger can move before the touch is considered a scroll */
+    private final int mTouchSlop;
+
+    /* Where the finger went down */
+    private float mDownX;
+    private float mDownY;
+
+    /* True while a clip is being prepared for the current touch */
+    private boolean mSpeculating;
+
+    /**
+     * Create a new {@link SpeculativePlaybackTouchListener} object.
+     *
+     * @param context is the context used to reach the {@link PlaybackController}
+     * @param adapter is the adapter of the list displaying the words
+     */
+    public SpeculativePlaybackTouchListener(Context context, WordAdapter adapter) {
+        mPlaybackController = PlaybackController.getInstance(context);
+        mAdapter = adapter;
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+    }
+
+    /**
+     * Start watching the touches and scrolls of the given list.
+     */
+    public void attachTo(RecyclerView recyclerView) {
+        recyclerView.addOnItemTouchListener(this);
+        // Once the list starts scrolling it keeps the touch events to itself,
+        // so the scroll state is what tells us the touch became a scroll
+        recyclerView.addOnScrollListener(this);
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(RecyclerView recyclerView, MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                View child = recyclerView.findChildViewUnder(event.getX(), event.getY());
+                int position = child == null
+                        ? RecyclerView.NO_POSITION : recyclerView.getChildAdapterPosition(child);
+                Word word = position != RecyclerView.NO_POSITION
+                        && position < mAdapter.getItemCount() ? mAdapter.getWord(position) : null;
+                if (word != null) {
+                    mDownX = event.getX();
+                    mDownY = event.getY();
+                    mSpeculating = true;
+                    mPlaybackController.prepareSpeculatively(word);
+                }
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                if (mSpeculating && (Math.abs(event.getX() - mDownX) > mTouchSlop
+                        || Math.abs(event.getY() - mDownY) > mTouchSlop)) {
+                    // The touch became a scroll, it will not turn into a click
+                    discard();
+                }
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                discard();
+                break;
+
+            case MotionEvent.ACTION_UP:
+                // The click that follows will play the prepared clip
+                mSpeculating = false;
+                break;
+        }
+
+        // Let the list handle the touch as usual
+        return false;
+    }
+
+    @Override
+    public void onTouchEvent(RecyclerView recyclerView, MotionEvent event) {
+        // Never called, we do not intercept touches
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+        // We only watch the touches, we never take them over
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
+            discard();
+        }
+    }
+
+    private void discard() {
+        if (mSpeculating) {
+            mSpeculating = false;
+            mPlaybackController.discardSpeculation();
+        }
+    }
+}
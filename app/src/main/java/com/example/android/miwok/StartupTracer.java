@@ -0,0 +1,154 @@
+package com.example.android.miwok;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.v4.os.TraceCompat;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+
+/**
+ * {@link StartupTracer} measures cold start and keeps work that the first page does not need
+ * out of it.
+ *
+ * It records the time from process start to the first frame and to the first interactive frame,
+ * the one that shows the words of the visible category, and logs both. The phases in between are
+ * marked with named sections that show up in systrace.
+ *
+ * When the app is built with LAZY_STARTUP, work handed to {@link #runAfterFirstFrame(Runnable)}
+ * is held back until the first frame has been drawn.
+ *
+ * All methods must be called from the main thread.
+ */
+public final class StartupTracer {
+
+    private static final String LOG_TAG = "Startup";
+
+    /* Uptime at which the process started, 0 until it is known */
+    private static long sProcessStartUptime;
+
+    /* Uptimes of the first frame and the first interactive frame, 0 until they are drawn */
+    private static long sFirstFrameUptime;
+    private static long sFirstInteractiveUptime;
+
+    /* Work waiting for the first frame */
+    private static final ArrayList<Runnable> sDeferredWork = new ArrayList<>();
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private StartupTracer() {
+    }
+
+    /**
+     * Remember when the process started. Call this as early as possible when the app starts.
+     * Before Android N the time at which this is called is the best we know.
+     */
+    public static void markProcessStart() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            sProcessStartUptime = Process.getStartUptimeMillis();
+        } else {
+            sProcessStartUptime = SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * Begin a named section of the startup trace. Sections must be ended in reverse order, on the
+     * same thread.
+     */
+    public static void beginSection(String name) {
+        TraceCompat.beginSection(name);
+    }
+
+    /**
+     * End the section that was begun last.
+     */
+    public static void endSection() {
+        TraceCompat.endSection();
+    }
+
+    /**
+     * Returns true once the first frame of the app has been drawn
+     */
+    public static boolean isFirstFrameDrawn() {
+        return sFirstFrameUptime != 0;
+    }
+
+    /**
+     * Record when the first frame of the given activity is drawn, then run the work that was
+     * waiting for it. Does nothing once the first frame has been drawn.
+     */
+    public static void watchFirstFrame(Activity activity) {
+        if (isFirstFrameDrawn()) {
+            return;
+        }
+        final View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+
+                        // The frame is drawn right after this traversal, which is before the
+                        // messages that are already in the queue
+                        sMainHandler.postAtFrontOfQueue(new Runnable() {
+                            @Override
+                            public void run() {
+                                onFirstFrame();
+                            }
+                        });
+                        return true;
+                    }
+                });
+    }
+
+    /**
+     * Record the first frame that shows the words of the visible category and tell the system
+     * that the activity is fully drawn. Only the first call counts.
+     */
+    public static void reportInteractive(Activity activity) {
+        if (sFirstInteractiveUptime != 0) {
+            return;
+        }
+        sFirstInteractiveUptime = SystemClock.uptimeMillis();
+        Log.i(LOG_TAG, "First interactive frame " + sinceProcessStart(sFirstInteractiveUptime));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            activity.reportFullyDrawn();
+        }
+    }
+
+    /**
+     * Run the given work once the first frame has been drawn, or right away if it has been or
+     * if the app is not built for a lazy startup. Deferred work runs one piece per message so
+     * the frames after the first one stay responsive.
+     */
+    public static void runAfterFirstFrame(Runnable work) {
+        if (isFirstFrameDrawn() || !BuildConfig.LAZY_STARTUP) {
+            work.run();
+        } else {
+            sDeferredWork.add(work);
+        }
+    }
+
+    private static void onFirstFrame() {
+        sFirstFrameUptime = SystemClock.uptimeMillis();
+        Log.i(LOG_TAG, "First frame " + sinceProcessStart(sFirstFrameUptime));
+
+        for (Runnable work : sDeferredWork) {
+            sMainHandler.post(work);
+        }
+        sDeferredWork.clear();
+    }
+
+    private static String sinceProcessStart(long uptime) {
+        if (sProcessStartUptime == 0) {
+            return "at uptime " + uptime + "ms";
+        }
+        return (uptime - sProcessStartUptime) + "ms after process start";
+    }
+}
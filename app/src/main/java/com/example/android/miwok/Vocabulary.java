@@ -0,0 +1,192 @@
+package com.example.android.miwok;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.util.SparseIntArray;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * {@link Vocabulary} reads the categories and the words of every category from the
+ * vocabulary.bin asset, which is compiled from src/main/vocabulary/categories.tsv and words.tsv
+ * at build time (see vocabulary.gradle for the format).
+ *
+ * The asset is memory-mapped and read in place by {@link VocabularyFile}. This class adds what
+ * needs Android: it resolves the resource names of the vocabulary to resource IDs, and the
+ * audio names to the clip IDs of {@link AudioBundles}, and builds {@link Word}s.
+ */
+public class Vocabulary extends VocabularyFile {
+
+    /** Name of the asset holding the compiled vocabulary */
+    public static final String ASSET_NAME = "vocabulary.bin";
+
+    /* Type under which the clip IDs of audio names are remembered */
+    private static final String CLIP_TYPE = "clip";
+
+    private static Vocabulary sInstance;
+
+    private final Resources mResources;
+
+    private final String mPackageName;
+
+    private final AudioBundles mAudioBundles;
+
+    /*
+     * Maps a resource type to the IDs of the resources of that type, by the key of their name.
+     * Types are kept apart since a word's image and audio share their name.
+     */
+    private final HashMap<String, SparseIntArray> mResourceIds = new HashMap<>();
+
+    /**
+     * Returns the app wide {@link Vocabulary}, mapping the asset the first time it is called.
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized Vocabulary getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            sInstance = new Vocabulary(appContext.getResources(), appContext.getPackageName(),
+                    AudioBundles.getInstance(appContext), mapAsset(appContext));
+        }
+        return sInstance;
+    }
+
+    private static ByteBuffer mapAsset(Context context) {
+        AssetFileDescriptor descriptor = null;
+        FileInputStream stream = null;
+        try {
+            descriptor = context.getAssets().openFd(ASSET_NAME);
+            stream = descriptor.createInputStream();
+            // The mapping stays valid after the stream is closed
+            return stream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not map " + ASSET_NAME, e);
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+                if (descriptor != null) {
+                    descriptor.close();
+                }
+            } catch (IOException e) {
+                // Nothing left to clean up
+            }
+        }
+    }
+
+    /**
+     * Create a new {@link Vocabulary} object.
+     *
+     * @param resources are used to resolve the title, color and image resource names
+     * @param packageName is the package the resources belong to
+     * @param audioBundles are used to resolve the audio names
+     * @param buffer holds the compiled vocabulary
+     */
+    Vocabulary(Resources resources, String packageName, AudioBundles audioBundles,
+               ByteBuffer buffer) {
+        super(buffer);
+        mResources = resources;
+        mPackageName = packageName;
+        mAudioBundles = audioBundles;
+    }
+
+    /**
+     * Returns the string resource ID of the title of the category at the given index
+     */
+    public int getCategoryTitleResourceId(int categoryIndex) {
+        return resolveResource(getCategoryTitleKey(categoryIndex), "string");
+    }
+
+    /**
+     * Returns the color resource ID of the list of the category at the given index
+     */
+    public int getCategoryColorResourceId(int categoryIndex) {
+        return resolveResource(getCategoryColorKey(categoryIndex), "color");
+    }
+
+    /**
+     * Returns the words of the given category. The list is a view over the mapped vocabulary
+     * and decodes each {@link Word} when it is asked for.
+     */
+    public List<Word> getWords(String category) {
+        int categoryIndex = findCategory(category);
+        if (categoryIndex < 0) {
+            throw new IllegalArgumentException("Unknown category " + category);
+        }
+        return new WordList(getFirstWord(categoryIndex), getCategorySize(categoryIndex));
+    }
+
+    /**
+     * Decode the word at the given index of the whole vocabulary
+     */
+    public Word getWord(int wordIndex) {
+        String defaultTranslation = getDefaultTranslation(wordIndex);
+        String miwokTranslation = getMiwokTranslation(wordIndex);
+        int imageKey = getImageKey(wordIndex);
+        int audioClipId = resolveResource(getAudioKey(wordIndex), CLIP_TYPE);
+        if (imageKey == NO_STRING) {
+            return new Word(defaultTranslation, miwokTranslation, audioClipId);
+        }
+        return new Word(defaultTranslation, miwokTranslation,
+                resolveResource(imageKey, "drawable"), audioClipId);
+    }
+
+    /**
+     * Returns the ID of the resource whose name has the given key, or of the audio clip if the
+     * type is {@link #CLIP_TYPE}. Names are looked up once and then remembered.
+     */
+    private int resolveResource(int nameKey, String type) {
+        synchronized (mResourceIds) {
+            SparseIntArray resourceIds = mResourceIds.get(type);
+            if (resourceIds == null) {
+                resourceIds = new SparseIntArray();
+                mResourceIds.put(type, resourceIds);
+            }
+            int resourceId = resourceIds.get(nameKey, 0);
+            if (resourceId == 0) {
+                resourceId = CLIP_TYPE.equals(type) ? mAudioBundles.getClipId(getName(nameKey))
+                        : mResources.getIdentifier(getName(nameKey), type, mPackageName);
+                resourceIds.put(nameKey, resourceId);
+            }
+            return resourceId;
+        }
+    }
+
+    /**
+     * The words of one category, decoded from the mapped vocabulary on demand.
+     */
+    private class WordList extends AbstractList<Word> implements RandomAccess {
+
+        private final int mFirstWord;
+
+        private final int mSize;
+
+        WordList(int firstWord, int size) {
+            mFirstWord = firstWord;
+            mSize = size;
+        }
+
+        @Override
+        public Word get(int location) {
+            if (location < 0 || location >= mSize) {
+                throw new IndexOutOfBoundsException("Word " + location + " of " + mSize);
+            }
+            return getWord(mFirstWord + location);
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+    }
+}
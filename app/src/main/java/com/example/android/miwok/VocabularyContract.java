@@ -0,0 +1,77 @@
+package com.example.android.miwok;
+
+import android.provider.BaseColumns;
+
+/**
+ * {@link VocabularyContract} defines the tables and columns of the vocabulary database.
+ */
+public final class VocabularyContract {
+
+    private VocabularyContract() {
+        // The contract only holds constants
+    }
+
+    /**
+     * One row per vocabulary word.
+     */
+    public static final class WordEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "words";
+
+        /** Name of the category the word belongs to */
+        public static final String COLUMN_CATEGORY = "category";
+
+        /** Position of the word in its category */
+        public static final String COLUMN_POSITION = "position";
+
+        /** Translation of the word in the user's language, such as English */
+        public static final String COLUMN_DEFAULT_TRANSLATION = "default_translation";
+
+        /** Translation of the word in Miwok */
+        public static final String COLUMN_MIWOK_TRANSLATION = "miwok_translation";
+
+        /** Name of the drawable resource of the word, null if it has no image */
+        public static final String COLUMN_IMAGE = "image";
+
+        /** Name of the clip holding the pronunciation of the word */
+        public static final String COLUMN_AUDIO = "audio";
+    }
+
+    /**
+     * A single row describing the vocabulary asset the words table was copied from.
+     */
+    public static final class SourceEntry {
+
+        public static final String TABLE_NAME = "source";
+
+        /** Content checksum of the asset, see {@link VocabularyFile#getContentChecksum()} */
+        public static final String COLUMN_CHECKSUM = "checksum";
+    }
+
+    /**
+     * One row per word that has been reviewed, holding where it stands in the spaced repetition
+     * schedule (see {@link ReviewScheduler}).
+     */
+    public static final class ReviewEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "reviews";
+
+        /**
+         * Name of the clip of the reviewed word, which is unique to the word and stays the same
+         * when the vocabulary changes around it
+         */
+        public static final String COLUMN_WORD = "word";
+
+        /** Easiness of the word, in hundredths */
+        public static final String COLUMN_EASINESS = "easiness";
+
+        /** Interval in days after which the word was last scheduled */
+        public static final String COLUMN_INTERVAL = "interval_days";
+
+        /** Number of times in a row the word was remembered */
+        public static final String COLUMN_REPETITIONS = "repetitions";
+
+        /** When the word is due next, in milliseconds since the epoch */
+        public static final String COLUMN_DUE = "due";
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.android.miwok;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.example.android.miwok.VocabularyContract.ReviewEntry;
+import com.example.android.miwok.VocabularyContract.SourceEntry;
+import com.example.android.miwok.VocabularyContract.WordEntry;
+
+/**
+ * {@link VocabularyDbHelper} creates the vocabulary database and fills it with the words of
+ * the {@link Vocabulary} asset. The database also keeps the user's review progress, which
+ * unlike the words is never rebuilt.
+ *
+ * The words table is a copy of the asset, so it is rebuilt whenever it was copied from an asset
+ * with another content checksum, whether or not the version code of the app changed.
+ */
+public class VocabularyDbHelper extends SQLiteOpenHelper {
+
+    private static final String LOG_TAG = VocabularyDbHelper.class.getSimpleName();
+
+    private static final String DATABASE_NAME = "vocabulary.db";
+
+    /*
+     * Version of the schema, bump it when a table is added or changed. Version 2 added the
+     * reviews table, which onUpgrade creates in databases made before it.
+     */
+    private static final int DATABASE_VERSION = 2;
+
+    private final Context mContext;
+
+    public VocabularyDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        mContext = context.getApplicationContext();
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createWords(db);
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + ReviewEntry.TABLE_NAME + " ("
+                + ReviewEntry._ID + " INTEGER PRIMARY KEY, "
+                + ReviewEntry.COLUMN_WORD + " TEXT NOT NULL UNIQUE, "
+                + ReviewEntry.COLUMN_EASINESS + " INTEGER NOT NULL, "
+                + ReviewEntry.COLUMN_INTERVAL + " INTEGER NOT NULL, "
+                + ReviewEntry.COLUMN_REPETITIONS + " INTEGER NOT NULL, "
+                + ReviewEntry.COLUMN_DUE + " INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The words table only holds a copy of the vocabulary asset, so start over from the
+        // asset. Review progress is kept, words that are no longer in the vocabulary are
+        // ignored when it is read, and the reviews table is created if it is missing.
+        dropWords(db);
+        onCreate(db);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        if (db.isReadOnly()) {
+            // Stale words are only replaced once the database can be written again
+            return;
+        }
+        int checksum = Vocabulary.getInstance(mContext).getContentChecksum();
+        db.beginTransaction();
+        try {
+            // Databases created before the checksum was kept have no source table
+            db.execSQL("CREATE TABLE IF NOT EXISTS " + SourceEntry.TABLE_NAME + " ("
+                    + SourceEntry.COLUMN_CHECKSUM + " INTEGER NOT NULL)");
+            if (!hasChecksum(db, checksum)) {
+                Log.i(LOG_TAG, "The vocabulary changed, rebuilding its words");
+                dropWords(db);
+                createWords(db);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        onUpgrade(db, oldVersion, newVersion);
+    }
+
+    private static boolean hasChecksum(SQLiteDatabase db, int checksum) {
+        Cursor cursor = db.query(SourceEntry.TABLE_NAME,
+                new String[]{SourceEntry.COLUMN_CHECKSUM}, null, null, null, null, null);
+        try {
+            return cursor.moveToFirst() && cursor.getInt(0) == checksum;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void dropWords(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + WordEntry.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + SourceEntry.TABLE_NAME);
+    }
+
+    private void createWords(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + WordEntry.TABLE_NAME + " ("
+                + WordEntry._ID + " INTEGER PRIMARY KEY, "
+                + WordEntry.COLUMN_CATEGORY + " TEXT NOT NULL, "
+                + WordEntry.COLUMN_POSITION + " INTEGER NOT NULL, "
+                + WordEntry.COLUMN_DEFAULT_TRANSLATION + " TEXT NOT NULL, "
+                + WordEntry.COLUMN_MIWOK_TRANSLATION + " TEXT NOT NULL, "
+                + WordEntry.COLUMN_IMAGE + " TEXT, "
+                + WordEntry.COLUMN_AUDIO + " TEXT NOT NULL)");
+
+        // Words are listed by category in order, and looked up by either translation
+        db.execSQL("CREATE UNIQUE INDEX words_category_position ON " + WordEntry.TABLE_NAME
+                + " (" + WordEntry.COLUMN_CATEGORY + ", " + WordEntry.COLUMN_POSITION + ")");
+        db.execSQL("CREATE INDEX words_miwok ON " + WordEntry.TABLE_NAME
+                + " (" + WordEntry.COLUMN_MIWOK_TRANSLATION + " COLLATE NOCASE)");
+        db.execSQL("CREATE INDEX words_default ON " + WordEntry.TABLE_NAME
+                + " (" + WordEntry.COLUMN_DEFAULT_TRANSLATION + " COLLATE NOCASE)");
+
+        db.execSQL("CREATE TABLE " + SourceEntry.TABLE_NAME + " ("
+                + SourceEntry.COLUMN_CHECKSUM + " INTEGER NOT NULL)");
+
+        importVocabulary(db);
+    }
+
+    /**
+     * Copy every word of the {@link Vocabulary} asset into the words table, and its checksum
+     * into the source table. This always runs inside a transaction, so it is a single commit.
+     */
+    private void importVocabulary(SQLiteDatabase db) {
+        Vocabulary vocabulary = Vocabulary.getInstance(mContext);
+        ContentValues values = new ContentValues();
+        for (int category = 0; category < vocabulary.getCategoryCount(); category++) {
+            String categoryName = vocabulary.getCategoryName(category);
+            int firstWord = vocabulary.getFirstWord(category);
+            int size = vocabulary.getCategorySize(category);
+            for (int position = 0; position < size; position++) {
+                int word = firstWord + position;
+                values.clear();
+                values.put(WordEntry.COLUMN_CATEGORY, categoryName);
+                values.put(WordEntry.COLUMN_POSITION, position);
+                values.put(WordEntry.COLUMN_DEFAULT_TRANSLATION,
+                        vocabulary.getDefaultTranslation(word));
+                values.put(WordEntry.COLUMN_MIWOK_TRANSLATION,
+                        vocabulary.getMiwokTranslation(word));
+                values.put(WordEntry.COLUMN_IMAGE, vocabulary.getImageName(word));
+                values.put(WordEntry.COLUMN_AUDIO, vocabulary.getAudioName(word));
+                db.insertOrThrow(WordEntry.TABLE_NAME, null, values);
+            }
+        }
+
+        values.clear();
+        values.put(SourceEntry.COLUMN_CHECKSUM, vocabulary.getContentChecksum());
+        db.insertOrThrow(SourceEntry.TABLE_NAME, null, values);
+    }
+}
@@ -2,31 +2,56 @@ package com.example.android.miwok;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
-import android.support.v4.content.ContextCompat;
+import android.support.v4.graphics.ColorUtils;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Created by jaielalondon on 5/13/18.
  */
 
-public class WordAdapter extends ArrayAdapter<Word> {
+public class WordAdapter extends RecyclerView.Adapter<WordAdapter.WordViewHolder> {
 
-    private Context mContext;
+    /**
+     * Interface definition for a callback to be invoked when a row is clicked.
+     */
+    public interface OnWordClickListener {
+
+        /**
+         * Called when the row displaying the given word has been clicked.
+         *
+         * @param word is the word displayed by the row
+         * @param position is the position of the row in the adapter
+         */
+        void onWordClick(Word word, int position);
+    }
+
+    private final LayoutInflater mInflater;
+
+    /* Decodes the word images off the main thread */
+    private final WordImageLoader mImageLoader;
+
+    /* The words displayed by the list */
+    private List<Word> wordList;
 
-    /* Creates a new list of words*/
-    private List<Word> wordList = new ArrayList<>();
+    /* Background color for this list of words */
+    private final int mBackgroundColor;
 
-    /* Resource ID for the background color for this list of words*/
-    private int mBackgroundColorResourceId;
+    /* Background color of the row whose word is being played, a shade darker */
+    private final int mHighlightColor;
+
+    /* Position of the highlighted row, or RecyclerView.NO_POSITION */
+    private int mHighlightedPosition = RecyclerView.NO_POSITION;
+
+    /* Notified when a row is clicked, may be null */
+    private final OnWordClickListener mOnWordClickListener;
 
     /**
      * The context is used to inflate the layout file, and words is the data we want
@@ -34,73 +59,142 @@ public class WordAdapter extends ArrayAdapter<Word> {
      *
      * @param context        The current context. Used to inflate the layout file.
      * @param words A List of Words objects to display in a list
-     * @param color is the desired background color
+     * @param color is the desired background color, already resolved from its resource
+     * @param listener is notified when a row is clicked, may be null
      */
-    public WordAdapter(@NonNull Context context, ArrayList<Word> words, int color) {
-        // Here, we initialize the WordAdapter's internal storage for the context and the list.
-        // the second argument is used when the ArrayAdapter is populating a single TextView.
-        // Because this is a custom adapter for two TextViews, the adapter is not
-        // going to use this second argument, so it can be an
-        // y value. Here, we used 0.
-        super(context, 0, words);
-        mContext = context;
+    public WordAdapter(@NonNull Context context, List<Word> words, int color,
+                       OnWordClickListener listener) {
+        mInflater = LayoutInflater.from(context);
+        mImageLoader = WordImageLoader.getInstance(context);
         wordList = words;
-        mBackgroundColorResourceId = color;
+        mBackgroundColor = color;
+        mHighlightColor = ColorUtils.compositeColors(0x40000000, color);
+        mOnWordClickListener = listener;
+    }
 
+    @Override
+    public WordViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        WordViewHolder holder =
+                new WordViewHolder(mInflater.inflate(R.layout.list_item, parent, false));
+
+        //every row of the list has the same color, so it only has to be set when the row is created
+        //or highlighted
+        holder.itemView.setBackgroundColor(mBackgroundColor);
+        return holder;
     }
 
-    @NonNull
     @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
+    public void onBindViewHolder(WordViewHolder holder, int position) {
+        holder.bind(wordList.get(position));
+        holder.setHighlighted(position == mHighlightedPosition);
+    }
 
-        // Check if the existing view is being reused, otherwise inflate the view
-        View listItemView = convertView;
-        if (listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.list_item, parent, false);
-        }
+    @Override
+    public int getItemCount() {
+        return wordList.size();
+    }
+
+    /**
+     * Returns the word displayed at the given position, or null if it is still being loaded
+     */
+    public Word getWord(int position) {
+        return wordList.get(position);
+    }
 
-        // Get the {@link Word} object located at this position in the list
-        Word currentWord = wordList.get(position);
-
-        // Find the TextView in the list_item.xml layout with the ID miwok_text_view
-        TextView miwokTextView = (TextView) listItemView.findViewById(R.id.miwok_text_view);
-        // Get the miwok word from the current Word object and
-        // set this text on the name TextView
-        miwokTextView.setText(currentWord.getMiwokTranslation());
-
-        // Find the TextView in the list_item.xml layout with the ID default_text_view
-        TextView defaultTextView = (TextView) listItemView.findViewById(R.id.default_text_view);
-        // Get the defualt language word from the current Word object and
-        // set this text on the number TextView
-        defaultTextView.setText(currentWord.getDefaultTranslation());
-
-        //Find the ImageView in the list_item.xml layout with the ID image
-        ImageView imageView = (ImageView) listItemView.findViewById(R.id.image);
-
-        if (currentWord.hasImage()) {
-            //get the ID of the image that is associated with the current word
-            //set this image on the ImageView
-            imageView.setImageResource(currentWord.getImageResourceId());
-            //set ImageView to be visible
-            imageView.setVisibility(View.VISIBLE);
-        } else {
-            //set ImageView to be GONE
-            imageView.setVisibility(View.GONE);
+    /**
+     * Highlight the row at the given position, such as the word being played, and remove the
+     * highlight of the row that had it.
+     *
+     * @param position is the position of the row, or RecyclerView.NO_POSITION for none
+     */
+    public void setHighlightedPosition(int position) {
+        if (position == mHighlightedPosition) {
+            return;
         }
+        if (mHighlightedPosition != RecyclerView.NO_POSITION) {
+            notifyItemChanged(mHighlightedPosition);
+        }
+        mHighlightedPosition = position;
+        if (position != RecyclerView.NO_POSITION) {
+            notifyItemChanged(position);
+        }
+    }
 
-        // Find the LinearLayout that surrounds the defualt and miwok TextViews
-        View textViewLayout = listItemView.findViewById(R.id.TextViewContainer);
+    /**
+     * Replace the words displayed by the list. Only the rows whose word changed are bound again.
+     *
+     * @param words are the new words to display
+     * @param diff goes from the words displayed so far to the new ones, it is computed by the
+     *             caller, which can tell words apart without decoding them
+     */
+    public void setWords(List<Word> words, DiffUtil.DiffResult diff) {
+        wordList = words;
+        diff.dispatchUpdatesTo(this);
+    }
 
-        //find the color the resource id maps to
-        int color = ContextCompat.getColor(getContext(), mBackgroundColorResourceId);
+    /**
+     * Holds the views of a single row so they are only looked up when the row is created.
+     */
+    class WordViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
 
-        //set background color to this color
-        textViewLayout.setBackgroundColor(color);
+        private final TextView mMiwokTextView;
 
-        // Return the whole list item layout (containing 2 TextViews)
-        // so that it can be shown in the ListView
-        return listItemView;
-    }
+        private final TextView mDefaultTextView;
 
+        private final ImageView mImageView;
+
+        private boolean mHighlighted;
+
+        WordViewHolder(View itemView) {
+            super(itemView);
+            mMiwokTextView = (TextView) itemView.findViewById(R.id.miwok_text_view);
+            mDefaultTextView = (TextView) itemView.findViewById(R.id.default_text_view);
+            mImageView = (ImageView) itemView.findViewById(R.id.image);
+            itemView.setOnClickListener(this);
+        }
+
+        void bind(Word currentWord) {
+            if (currentWord == null) {
+                // The word is still being loaded, show an empty row until it is
+                mMiwokTextView.setText(null);
+                mDefaultTextView.setText(null);
+                mImageLoader.clear(mImageView);
+                return;
+            }
+
+            // Get the miwok and default language words from the current Word object and
+            // set them on the TextViews
+            mMiwokTextView.setText(currentWord.getMiwokTranslation());
+            mDefaultTextView.setText(currentWord.getDefaultTranslation());
+
+            if (currentWord.hasImage()) {
+                //set the image associated with the current word on the ImageView,
+                //once it has been decoded in the background if it is not in memory yet
+                mImageLoader.load(currentWord, mImageView);
+                mImageView.setVisibility(View.VISIBLE);
+            } else {
+                mImageLoader.clear(mImageView);
+                mImageView.setVisibility(View.GONE);
+            }
+        }
+
+        void setHighlighted(boolean highlighted) {
+            if (highlighted != mHighlighted) {
+                mHighlighted = highlighted;
+                itemView.setBackgroundColor(highlighted ? mHighlightColor : mBackgroundColor);
+            }
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position == RecyclerView.NO_POSITION || mOnWordClickListener == null) {
+                return;
+            }
+            Word word = wordList.get(position);
+            if (word != null) {
+                mOnWordClickListener.onWordClick(word, position);
+            }
+        }
+    }
 }
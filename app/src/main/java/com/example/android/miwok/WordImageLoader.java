@@ -0,0 +1,466 @@
+package com.example.android.miwok;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.util.TypedValue;
+import android.widget.ImageView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+/**
+ * {@link WordImageLoader} displays the images of {@link Word}s without decoding anything on the
+ * main thread.
+ *
+ * Images are decoded on a background thread straight to the size of a list row image (88dp),
+ * skipping pixels at decode time instead of decoding the full PNG and scaling it down. Decoded
+ * images are kept in an LRU cache with a byte budget, and the memory of images evicted from the
+ * cache is reused for later decodes where the platform allows it.
+ *
+ * Images of content packs are decoded the same way, straight from their pack, under the image
+ * IDs given by {@link ContentPacks}.
+ *
+ * What each view shows and waits for is kept in the view's tag, and the views waiting for an
+ * image are counted per image, so binding a view to an image that is already in memory only
+ * costs the drawable the platform wraps the bitmap in.
+ *
+ * All methods must be called from the main thread.
+ */
+public class WordImageLoader {
+
+    private static final String LOG_TAG = WordImageLoader.class.getSimpleName();
+
+    /** Default amount of decoded image memory the cache is allowed to keep */
+    public static final int DEFAULT_MEMORY_BUDGET_BYTES = 4 * 1024 * 1024;
+
+    /* Maximum number of evicted bitmaps kept around to decode into */
+    private static final int MAX_REUSABLE_BITMAPS = 8;
+
+    private static WordImageLoader sInstance;
+
+    private final Resources mResources;
+
+    /* Opens the images of content packs */
+    private final ContentPacks mContentPacks;
+
+    /* Width and height in pixels images are decoded to */
+    private final int mTargetSizePx;
+
+    /* Decoded images by drawable resource ID */
+    private final LruCache<Integer, Bitmap> mCache;
+
+    /* Each drawable resource ID boxed once, so looking it up in the cache does not allocate */
+    private final SparseArray<Integer> mBoxedIds = new SparseArray<>();
+
+    /* Bitmaps evicted from the cache whose memory can be decoded into, guarded by itself */
+    private final ArrayList<Bitmap> mReusableBitmaps = new ArrayList<>();
+
+    /*
+     * Views that have waited for an image since the last delivery. Views that stopped waiting
+     * are only dropped from it when an image is delivered, or when no view waits anymore.
+     */
+    private final ArrayList<ImageView> mWaitingViews = new ArrayList<>();
+
+    /* Number of views waiting for each drawable resource ID */
+    private final SparseIntArray mWaitingCounts = new SparseIntArray();
+
+    /* Number of views showing each drawable resource ID, so it is not reused while on screen */
+    private final SparseIntArray mShownCounts = new SparseIntArray();
+
+    /* Decodes that have been queued but not delivered yet, by drawable resource ID */
+    private final SparseArray<Runnable> mQueuedDecodes = new SparseArray<>();
+
+    private final Handler mDecodeHandler;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Returns the app wide {@link WordImageLoader}
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized WordImageLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WordImageLoader(context.getApplicationContext(),
+                    DEFAULT_MEMORY_BUDGET_BYTES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Create a new {@link WordImageLoader} object.
+     *
+     * @param context is the application context used to open the drawables
+     * @param memoryBudgetBytes is the maximum amount of decoded images to keep in memory
+     */
+    WordImageLoader(Context context, int memoryBudgetBytes) {
+        mResources = context.getResources();
+        mContentPacks = ContentPacks.getInstance(context);
+        mTargetSizePx = mResources.getDimensionPixelSize(R.dimen.list_item_height);
+        mCache = new LruCache<Integer, Bitmap>(memoryBudgetBytes) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap value) {
+                return byteCount(value);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, Bitmap oldValue,
+                                        Bitmap newValue) {
+                recycle(key, oldValue);
+            }
+        };
+
+        HandlerThread decodeThread = new HandlerThread("WordImages",
+                Process.THREAD_PRIORITY_BACKGROUND);
+        decodeThread.start();
+        mDecodeHandler = new Handler(decodeThread.getLooper());
+    }
+
+    /**
+     * Show the image of the given word in the given view. If the image is not in memory yet the
+     * view is cleared and the image is set once it has been decoded in the background, unless the
+     * view has been bound to another word in the meantime.
+     */
+    public void load(Word word, ImageView imageView) {
+        load(word.getImageResourceId(), imageView);
+    }
+
+    /**
+     * Show the drawable with the given resource ID in the given view, decoding it in the
+     * background if it is not in memory yet.
+     */
+    public void load(int imageResourceId, ImageView imageView) {
+        ViewState state = getState(imageView);
+        if (state.mRequestedId == imageResourceId) {
+            // Already waiting for it
+            return;
+        }
+        stopWaiting(state);
+
+        Bitmap bitmap = mCache.get(box(imageResourceId));
+        if (bitmap != null) {
+            show(imageView, state, imageResourceId, bitmap);
+            return;
+        }
+
+        show(imageView, state, WordTable.NO_IMAGE, null);
+        state.mRequestedId = imageResourceId;
+        mWaitingCounts.put(imageResourceId, mWaitingCounts.get(imageResourceId) + 1);
+        if (!state.mListed) {
+            state.mListed = true;
+            mWaitingViews.add(imageView);
+        }
+        queueDecode(imageResourceId);
+    }
+
+    /**
+     * Clear the given view and stop waiting for the image it was going to show. Call this when
+     * the view is bound to a word without an image.
+     */
+    public void clear(ImageView imageView) {
+        ViewState state = getState(imageView);
+        stopWaiting(state);
+        show(imageView, state, WordTable.NO_IMAGE, null);
+    }
+
+    /**
+     * Let go of cached images when the system is running low on memory.
+     *
+     * @param level is the level given to {@link ComponentCallbacks2#onTrimMemory(int)}
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            mCache.evictAll();
+            mBoxedIds.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            mCache.trimToSize(mCache.maxSize() / 2);
+        }
+        synchronized (mReusableBitmaps) {
+            mReusableBitmaps.clear();
+        }
+    }
+
+    /**
+     * Returns what the given view shows and waits for, which is kept in its tag
+     */
+    private static ViewState getState(ImageView imageView) {
+        ViewState state = (ViewState) imageView.getTag(R.id.word_image_state);
+        if (state == null) {
+            state = new ViewState();
+            imageView.setTag(R.id.word_image_state, state);
+        }
+        return state;
+    }
+
+    private Integer box(int imageResourceId) {
+        Integer boxed = mBoxedIds.get(imageResourceId);
+        if (boxed == null) {
+            boxed = imageResourceId;
+            mBoxedIds.put(imageResourceId, boxed);
+        }
+        return boxed;
+    }
+
+    /**
+     * Show a bitmap in a view, unless the view already shows it.
+     *
+     * @param imageResourceId is the drawable resource ID of the bitmap, or WordTable.NO_IMAGE
+     * @param bitmap is the bitmap to show, or null to clear the view
+     */
+    private void show(ImageView imageView, ViewState state, int imageResourceId, Bitmap bitmap) {
+        if (bitmap == state.mShownBitmap) {
+            return;
+        }
+        if (state.mShownBitmap != null) {
+            decrement(mShownCounts, state.mShownId);
+        }
+        if (bitmap != null) {
+            mShownCounts.put(imageResourceId, mShownCounts.get(imageResourceId) + 1);
+        }
+        state.mShownId = imageResourceId;
+        state.mShownBitmap = bitmap;
+        imageView.setImageBitmap(bitmap);
+    }
+
+    /**
+     * Stop the given view from waiting for an image. The queued decode of the image is dropped
+     * if no other view waits for it. A decode that has already started still completes and
+     * lands in the cache.
+     */
+    private void stopWaiting(ViewState state) {
+        int imageResourceId = state.mRequestedId;
+        if (imageResourceId == WordTable.NO_IMAGE) {
+            return;
+        }
+        state.mRequestedId = WordTable.NO_IMAGE;
+        if (decrement(mWaitingCounts, imageResourceId) > 0) {
+            return;
+        }
+
+        Runnable decode = mQueuedDecodes.get(imageResourceId);
+        if (decode != null) {
+            mDecodeHandler.removeCallbacks(decode);
+            mQueuedDecodes.remove(imageResourceId);
+        }
+        if (mWaitingCounts.size() == 0) {
+            // None of the listed views waits anymore, let go of them
+            for (int i = 0; i < mWaitingViews.size(); i++) {
+                getState(mWaitingViews.get(i)).mListed = false;
+            }
+            mWaitingViews.clear();
+        }
+    }
+
+    /**
+     * Take one off the count of the given key, dropping the key when it reaches zero.
+     *
+     * @return the new count
+     */
+    private static int decrement(SparseIntArray counts, int key) {
+        int count = counts.get(key) - 1;
+        if (count > 0) {
+            counts.put(key, count);
+        } else {
+            counts.delete(key);
+        }
+        return count;
+    }
+
+    private void queueDecode(final int imageResourceId) {
+        if (mQueuedDecodes.get(imageResourceId) != null) {
+            // Already on its way
+            return;
+        }
+        Runnable decode = new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decode(imageResourceId);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(imageResourceId, bitmap);
+                    }
+                });
+            }
+        };
+        mQueuedDecodes.put(imageResourceId, decode);
+        mDecodeHandler.post(decode);
+    }
+
+    private void deliver(int imageResourceId, Bitmap bitmap) {
+        mQueuedDecodes.remove(imageResourceId);
+        mWaitingCounts.delete(imageResourceId);
+        if (bitmap != null) {
+            mCache.put(box(imageResourceId), bitmap);
+        }
+
+        // Show the image in the views waiting for it, and drop those that stopped waiting by
+        // moving the last view into their place
+        for (int i = mWaitingViews.size() - 1; i >= 0; i--) {
+            ImageView imageView = mWaitingViews.get(i);
+            ViewState state = getState(imageView);
+            if (state.mRequestedId == imageResourceId) {
+                state.mRequestedId = WordTable.NO_IMAGE;
+                if (bitmap != null) {
+                    show(imageView, state, imageResourceId, bitmap);
+                }
+            }
+            if (state.mRequestedId == WordTable.NO_IMAGE) {
+                state.mListed = false;
+                int last = mWaitingViews.size() - 1;
+                mWaitingViews.set(i, mWaitingViews.get(last));
+                mWaitingViews.remove(last);
+            }
+        }
+    }
+
+    /**
+     * Decode a drawable so that its longest side is the target size. Runs on the decode thread.
+     *
+     * @return the decoded bitmap, or null if it could not be decoded
+     */
+    private Bitmap decode(int imageResourceId) {
+        // Find out the size of the PNG of the density bucket the resources resolve to
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        decodeResource(imageResourceId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            Log.w(LOG_TAG, "Could not read the size of image " + imageResourceId);
+            return null;
+        }
+
+        // Skip whole pixels while decoding as long as the result stays at least as large as the
+        // target, then let the decoder scale the rest of the way
+        int longestSide = Math.max(options.outWidth, options.outHeight);
+        int sampleSize = 1;
+        while (longestSide / (sampleSize * 2) >= mTargetSizePx) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inScaled = true;
+        options.inDensity = longestSide / sampleSize;
+        options.inTargetDensity = mTargetSizePx;
+
+        // Decode into the memory of an evicted bitmap if one is large enough
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            options.inMutable = true;
+            options.inBitmap = takeReusableBitmap(
+                    scale(options.outWidth, sampleSize, options.inDensity),
+                    scale(options.outHeight, sampleSize, options.inDensity));
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = decodeResource(imageResourceId, options);
+        } catch (IllegalArgumentException e) {
+            // The reused bitmap did not fit after all, decode into fresh memory
+            options.inBitmap = null;
+            bitmap = decodeResource(imageResourceId, options);
+        }
+        if (bitmap != null) {
+            bitmap.setDensity(mResources.getDisplayMetrics().densityDpi);
+        }
+        return bitmap;
+    }
+
+    private Bitmap decodeResource(int imageResourceId, BitmapFactory.Options options) {
+        InputStream stream;
+        if (ContentPacks.isPackImage(imageResourceId)) {
+            stream = mContentPacks.openImage(imageResourceId);
+            if (stream == null) {
+                // Its pack was replaced since the word was loaded
+                return null;
+            }
+        } else {
+            stream = mResources.openRawResource(imageResourceId, new TypedValue());
+        }
+        try {
+            return BitmapFactory.decodeStream(stream, null, options);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Could not close image " + imageResourceId, e);
+            }
+        }
+    }
+
+    /* Size of one side once sampled and scaled to the target */
+    private int scale(int side, int sampleSize, int sampledLongestSide) {
+        return (int) ((long) (side / sampleSize) * mTargetSizePx / sampledLongestSide + 0.5f);
+    }
+
+    /**
+     * Keep the memory of a bitmap that left the cache so a later decode can use it, unless a
+     * view still shows the image.
+     */
+    private void recycle(int imageResourceId, Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT || !bitmap.isMutable()
+                || mShownCounts.get(imageResourceId) > 0) {
+            return;
+        }
+        synchronized (mReusableBitmaps) {
+            if (mReusableBitmaps.size() < MAX_REUSABLE_BITMAPS) {
+                mReusableBitmaps.add(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Returns the smallest reusable bitmap that can hold an image of the given size, or null.
+     */
+    private Bitmap takeReusableBitmap(int width, int height) {
+        int neededBytes = width * height * 4;
+        synchronized (mReusableBitmaps) {
+            int best = -1;
+            for (int i = 0; i < mReusableBitmaps.size(); i++) {
+                int bytes = byteCount(mReusableBitmaps.get(i));
+                if (bytes >= neededBytes
+                        && (best < 0 || bytes < byteCount(mReusableBitmaps.get(best)))) {
+                    best = i;
+                }
+            }
+            return best < 0 ? null : mReusableBitmaps.remove(best);
+        }
+    }
+
+    private static int byteCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        }
+        return bitmap.getByteCount();
+    }
+
+    /**
+     * What a view shows and waits for, kept in the view's tag.
+     */
+    private static class ViewState {
+
+        /* Drawable resource ID the view is waiting for, or WordTable.NO_IMAGE */
+        int mRequestedId = WordTable.NO_IMAGE;
+
+        /* Drawable resource ID of the bitmap the view shows, or WordTable.NO_IMAGE */
+        int mShownId = WordTable.NO_IMAGE;
+
+        /* Bitmap the view shows, or null */
+        Bitmap mShownBitmap;
+
+        /* Whether the view is in mWaitingViews */
+        boolean mListed;
+    }
+}
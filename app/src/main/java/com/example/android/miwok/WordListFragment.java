@@ -0,0 +1,355 @@
+package com.example.android.miwok;
+
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuInflater;
+import android.view.MenuItem;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * {@link Fragment} that displays the list of vocabulary words of one category, of the APK or
+ * of an installed content pack. Create it with {@link #newInstance(String, int)} or
+ * {@link #newInstance(String, String)}.
+ */
+public class WordListFragment extends Fragment {
+
+    private static final String LOG_TAG = WordListFragment.class.getSimpleName();
+
+    /* Argument holding the name of the category in the {@link Vocabulary} */
+    private static final String ARG_CATEGORY = "category";
+
+    /* Argument holding the name of the content pack of the category, if it is not in the APK */
+    private static final String ARG_PACK = "pack";
+
+    /* Argument holding the color resource of the category, if it is in the APK */
+    private static final String ARG_COLOR = "color";
+
+    /* Name of this category in the {@link Vocabulary} or in its content pack */
+    private String mCategory;
+
+    /* Name of the content pack of this category, null if it is in the APK */
+    private String mPack;
+
+    /* Color resource of this category's list */
+    private int mColorResourceId;
+
+    /* Plays the pronunciations of this category */
+    private PlaybackController mPlaybackController;
+
+    /* Loads the pronunciations of the rows that are about to be tapped */
+    private AudioPrefetcher mAudioPrefetcher;
+
+    /* Displays the words of this category, null while there is no view */
+    private RecyclerView mRecyclerView;
+
+    /* Binds the words to the rows of mRecyclerView, null until they are loaded */
+    private WordAdapter mAdapter;
+
+    /* Words of this category, null until they are loaded */
+    private List<Word> mWords;
+
+    /* True while every word of this category is being played */
+    private boolean mPlayingAll;
+
+    /* Highlights the word being played and keeps it on screen while playing all the words */
+    private final PlaybackController.OnSequenceListener mSequenceListener =
+            new PlaybackController.OnSequenceListener() {
+                @Override
+                public void onWordStarted(int position) {
+                    if (mAdapter == null) {
+                        return;
+                    }
+                    mAdapter.setHighlightedPosition(position);
+                    mRecyclerView.smoothScrollToPosition(position);
+                }
+
+                @Override
+                public void onSequenceEnded() {
+                    mPlayingAll = false;
+                    if (mAdapter != null) {
+                        mAdapter.setHighlightedPosition(RecyclerView.NO_POSITION);
+                    }
+                    if (getActivity() != null) {
+                        getActivity().supportInvalidateOptionsMenu();
+                    }
+                }
+            };
+
+    public WordListFragment() {
+        // Required empty public constructor
+    }
+
+    /**
+     * Create a new {@link WordListFragment} that displays the words of a category.
+     *
+     * @param category is the name of the category in the {@link Vocabulary}
+     * @param colorResourceId is the color resource of the category, read from the
+     *                        {@link Vocabulary} by the caller so the fragment does not have to
+     */
+    public static WordListFragment newInstance(String category, int colorResourceId) {
+        WordListFragment fragment = newInstance(null, category);
+        fragment.getArguments().putInt(ARG_COLOR, colorResourceId);
+        return fragment;
+    }
+
+    /**
+     * Create a new {@link WordListFragment} that displays the words of a category of an
+     * installed content pack.
+     *
+     * @param pack is the name of the content pack
+     * @param category is the name of the category in the vocabulary of the pack
+     */
+    public static WordListFragment newInstance(String pack, String category) {
+        Bundle arguments = new Bundle();
+        arguments.putString(ARG_PACK, pack);
+        arguments.putString(ARG_CATEGORY, category);
+        WordListFragment fragment = new WordListFragment();
+        fragment.setArguments(arguments);
+        return fragment;
+    }
+
+    /**
+     * Returns the name of the content pack of the category, or null if it is in the APK
+     */
+    String getPack() {
+        return getArguments().getString(ARG_PACK);
+    }
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        mCategory = getArguments().getString(ARG_CATEGORY);
+        mPack = getPack();
+        mColorResourceId = getArguments().getInt(ARG_COLOR);
+
+        //Each page adds its own "play all" action, the pager only shows the current page's
+        setHasOptionsMenu(true);
+    }
+
+    @Override
+    public void onCreateOptionsMenu(Menu menu, MenuInflater inflater) {
+        inflater.inflate(R.menu.menu_word_list, menu);
+    }
+
+    @Override
+    public void onPrepareOptionsMenu(Menu menu) {
+        MenuItem playAll = menu.findItem(R.id.action_play_all);
+        playAll.setTitle(mPlayingAll ? R.string.action_stop_playing_all
+                : R.string.action_play_all);
+        playAll.setIcon(mPlayingAll ? android.R.drawable.ic_media_pause
+                : android.R.drawable.ic_media_play);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() != R.id.action_play_all) {
+            return super.onOptionsItemSelected(item);
+        }
+        if (mPlayingAll) {
+            mPlaybackController.stop();
+        } else {
+            //The words are read on the audio thread, from the mapped vocabulary rather than from
+            //the paged list, which only holds the pages around the visible rows. The words of a
+            //pack are all in memory already, the audio thread gets a copy of them.
+            List<Word> words;
+            if (mPack == null) {
+                words = Vocabulary.getInstance(getActivity()).getWords(mCategory);
+            } else if (mWords != null) {
+                words = new ArrayList<>(mWords);
+            } else {
+                //Nothing to play until the words are loaded
+                return true;
+            }
+            mPlayingAll = true;
+            mPlaybackController.playAll(words, mSequenceListener);
+        }
+        getActivity().supportInvalidateOptionsMenu();
+        return true;
+    }
+
+    @Override
+    public void setUserVisibleHint(boolean isVisibleToUser) {
+        super.setUserVisibleHint(isVisibleToUser);
+
+        //Stop playing all the words once the user swipes to another category
+        if (!isVisibleToUser && mPlayingAll) {
+            mPlaybackController.stop();
+        }
+    }
+
+
+    @Override
+    public View onCreateView(LayoutInflater inflater, ViewGroup container,
+                             Bundle savedInstanceState) {
+
+        StartupTracer.beginSection("WordListFragment.onCreateView");
+
+        //Inflate the word_list view
+        View rootView = inflater.inflate(R.layout.word_list, container, false);
+
+        mPlaybackController = PlaybackController.getInstance(getActivity());
+
+        // Find the {@link RecyclerView} object in the view hierarchy of the {@link Activity}.
+        // There should be a {@link RecyclerView} with the view ID called list, which is declared
+        // in the word_list.xml file.
+        mRecyclerView = (RecyclerView) rootView.findViewById(R.id.list);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(getActivity()));
+        // The rows never change the size of the list itself
+        mRecyclerView.setHasFixedSize(true);
+
+        //Get the default(Eng) and miwok translations of this category
+        // and the corresponding image and pronunciation audio resources. They are loaded in the
+        // background the first time, and kept for when the view is created again.
+        Runnable loadCategory = new Runnable() {
+            @Override
+            public void run() {
+                if (mRecyclerView == null) {
+                    // The view was destroyed before its words were asked for
+                    return;
+                }
+                CategoryCache.Callback callback = new CategoryCache.Callback() {
+                    @Override
+                    public void onCategoryLoaded(CategoryCache.Category category) {
+                        if (mRecyclerView == null) {
+                            // The view was destroyed while the words were loading
+                            return;
+                        }
+                        showCategory(category);
+                    }
+                };
+                CategoryCache cache = CategoryCache.getInstance(getActivity());
+                if (mPack == null) {
+                    cache.load(mCategory, mColorResourceId, callback);
+                } else {
+                    cache.load(mPack, mCategory, callback);
+                }
+            }
+        };
+        if (getUserVisibleHint()) {
+            loadCategory.run();
+        } else {
+            //The pages next to the visible one are created with it, but their words
+            //are not needed until the user swipes, so they can wait for the first frame
+            StartupTracer.runAfterFirstFrame(loadCategory);
+        }
+
+        StartupTracer.endSection();
+        return rootView;
+    }
+
+    /**
+     * Display the loaded words of this category in the list
+     */
+    private void showCategory(CategoryCache.Category category) {
+        StartupTracer.beginSection("WordListFragment.showCategory");
+        mWords = category.getWords();
+
+        // Create an {@link WordAdapter}, whose data source is a list of {@link Word}s. The
+        // adapter knows how to create list items for each item in the list.
+        mAdapter = new WordAdapter(getActivity(), category.getWords(), category.getColor(),
+                new WordAdapter.OnWordClickListener() {
+                    @Override
+                    public void onWordClick(Word word, int position) {
+                        //Building the message allocates, so release builds skip it
+                        if (BuildConfig.DEBUG) {
+                            Log.v(LOG_TAG, word.toString());
+                        }
+
+                        //Play the pronunciation of the word, measuring it under its category
+                        mPlaybackController.play(word, mCategory);
+
+                        //Remember that it was played, the log is written in the background.
+                        //It is only created on the first play, to stay off the startup path.
+                        PlayLog.getInstance(getActivity()).record(word, mCategory);
+                    }
+                });
+
+        // Make the {@link RecyclerView} use the {@link WordAdapter} we created above, so that the
+        // {@link RecyclerView} will display list items for each {@link Word} in the list.
+        mRecyclerView.setAdapter(mAdapter);
+
+        //Once the words of the visible page are on screen the app is usable
+        if (getUserVisibleHint()) {
+            mRecyclerView.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (getActivity() != null) {
+                        StartupTracer.reportInteractive(getActivity());
+                    }
+                }
+            });
+        }
+
+        //Decode the pronunciations of the visible rows ahead of time
+        //so that a tap does not have to wait for the audio file to be prepared.
+        //Decoding audio is not needed to draw the first frame, so it waits for it.
+        final WordAdapter adapter = mAdapter;
+        StartupTracer.runAfterFirstFrame(new Runnable() {
+            @Override
+            public void run() {
+                if (mAdapter != adapter) {
+                    // The view was destroyed in the meantime
+                    return;
+                }
+                mAudioPrefetcher = new AudioPrefetcher(getActivity(), mCategory, mAdapter);
+                mRecyclerView.addOnScrollListener(mAudioPrefetcher);
+                mAudioPrefetcher.onScrolled(mRecyclerView, 0, 0);
+            }
+        });
+
+        //Large categories of the APK are loaded a page at a time, rows that were shown empty
+        //are bound again once their page arrives
+        if (mWords instanceof PagedWordList) {
+            ((PagedWordList) mWords).setOnPageLoadedListener(
+                    new PagedWordList.OnPageLoadedListener() {
+                        @Override
+                        public void onPageLoaded(int first, int count) {
+                            mAdapter.notifyItemRangeChanged(first, count);
+
+                            // Schedule the pronunciations of the rows that were missing
+                            if (mAudioPrefetcher != null) {
+                                mAudioPrefetcher.cancel();
+                                mAudioPrefetcher.onScrolled(mRecyclerView, 0, 0);
+                            }
+                        }
+                    });
+        }
+
+        //Start preparing the pronunciation of a row as soon as it is pressed
+        new SpeculativePlaybackTouchListener(getActivity(), mAdapter).attachTo(mRecyclerView);
+        StartupTracer.endSection();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+
+        //Stop loading the pronunciations of rows that are no longer displayed
+        if (mAudioPrefetcher != null) {
+            mAudioPrefetcher.cancel();
+            mAudioPrefetcher = null;
+        }
+        //Stop binding pages to rows that no longer exist, the words stay cached for the next view
+        if (mWords instanceof PagedWordList) {
+            ((PagedWordList) mWords).setOnPageLoadedListener(null);
+        }
+        mWords = null;
+        if (mPlayingAll) {
+            mPlaybackController.stop();
+        }
+        mRecyclerView = null;
+        mAdapter = null;
+    }
+}
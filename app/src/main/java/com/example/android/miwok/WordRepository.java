@@ -0,0 +1,395 @@
+package com.example.android.miwok;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.example.android.miwok.VocabularyContract.ReviewEntry;
+import com.example.android.miwok.VocabularyContract.WordEntry;
+
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link WordRepository} loads the words of a category from the vocabulary database on a
+ * background thread and hands them to the main thread.
+ */
+public class WordRepository {
+
+    /**
+     * Receives the words of a category once its first page is loaded.
+     */
+    public interface Callback {
+
+        /**
+         * Called on the main thread.
+         */
+        void onWordsLoaded(PagedWordList words);
+    }
+
+    /**
+     * Receives a range of words once they are loaded.
+     */
+    public interface WordsCallback {
+
+        /**
+         * Called on the main thread.
+         */
+        void onWordsLoaded(WordTable words);
+    }
+
+    /* Columns read to build a {@link Word} */
+    private static final String[] PROJECTION = {
+            WordEntry.COLUMN_DEFAULT_TRANSLATION,
+            WordEntry.COLUMN_MIWOK_TRANSLATION,
+            WordEntry.COLUMN_IMAGE,
+            WordEntry.COLUMN_AUDIO
+    };
+
+    private static final int COLUMN_DEFAULT_TRANSLATION = 0;
+    private static final int COLUMN_MIWOK_TRANSLATION = 1;
+    private static final int COLUMN_IMAGE = 2;
+    private static final int COLUMN_AUDIO = 3;
+
+    /**
+     * Receives the vocabulary once it is mapped.
+     */
+    public interface VocabularyCallback {
+
+        /**
+         * Called on the main thread.
+         */
+        void onVocabularyLoaded(Vocabulary vocabulary);
+    }
+
+    /**
+     * Receives the search index once it is built.
+     */
+    public interface SearchIndexCallback {
+
+        /**
+         * Called on the main thread.
+         */
+        void onSearchIndexLoaded(SearchIndex searchIndex);
+    }
+
+    /**
+     * Receives the review schedule once it is loaded.
+     */
+    public interface ReviewSchedulerCallback {
+
+        /**
+         * Called on the main thread. Cards are numbered like the words of the
+         * {@link Vocabulary}, and the scheduler must only be used from the main thread.
+         */
+        void onReviewSchedulerLoaded(ReviewScheduler scheduler);
+    }
+
+    /* Columns read to restore the state of a reviewed word */
+    private static final String[] REVIEW_PROJECTION = {
+            ReviewEntry.COLUMN_WORD,
+            ReviewEntry.COLUMN_EASINESS,
+            ReviewEntry.COLUMN_INTERVAL,
+            ReviewEntry.COLUMN_REPETITIONS,
+            ReviewEntry.COLUMN_DUE
+    };
+
+    private static WordRepository sInstance;
+
+    private final Context mContext;
+
+    private final VocabularyDbHelper mDbHelper;
+
+    /* Runs every query, in the order they were asked for */
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "WordRepository");
+                }
+            });
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /* The mapped vocabulary, null until it has been loaded through this repository */
+    private volatile Vocabulary mVocabulary;
+
+    /* Index over every word of the vocabulary, null until it has been built */
+    private volatile SearchIndex mSearchIndex;
+
+    /* Review schedule of every word, null until it has been loaded */
+    private volatile ReviewScheduler mReviewScheduler;
+
+    /* Map drawable resource names to their IDs, so each name is only looked up once */
+    private final HashMap<String, Integer> mDrawableResourceIds = new HashMap<>();
+
+    /**
+     * Returns the app wide {@link WordRepository}
+     *
+     * @param context is any context, only its application context is kept
+     */
+    public static synchronized WordRepository getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WordRepository(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private WordRepository(Context context) {
+        mContext = context;
+        mDbHelper = new VocabularyDbHelper(context);
+    }
+
+    /**
+     * Load the size and the first page of the given category in the background. The other pages
+     * are loaded by the returned list as they are needed.
+     *
+     * @param category is the name of the category
+     * @param callback receives the words on the main thread
+     */
+    public void loadCategory(final String category, final Callback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                SQLiteDatabase db = mDbHelper.getReadableDatabase();
+                int size = (int) DatabaseUtils.queryNumEntries(db, WordEntry.TABLE_NAME,
+                        WordEntry.COLUMN_CATEGORY + " = ?", new String[]{category});
+                WordTable firstPage = queryWords(db, category, 0,
+                        Math.min(PagedWordList.PAGE_SIZE, size));
+
+                final PagedWordList words =
+                        new PagedWordList(WordRepository.this, category, size, firstPage);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onWordsLoaded(words);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Load a range of words of the given category in the background.
+     *
+     * @param category is the name of the category
+     * @param first is the position of the first word in the category
+     * @param count is the number of words to load
+     * @param callback receives the words on the main thread
+     */
+    public void loadWords(final String category, final int first, final int count,
+                          final WordsCallback callback) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final WordTable words =
+                        queryWords(mDbHelper.getReadableDatabase(), category, first, count);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onWordsLoaded(words);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Read a range of words of a category. Positions are contiguous within a category, so the
+     * range is a seek on the category and position index rather than an OFFSET scan.
+     */
+    private WordTable queryWords(SQLiteDatabase db, String category, int first, int count) {
+        WordTable words = new WordTable(count);
+        int categoryIndex = words.addCategory(category);
+        Cursor cursor = db.query(WordEntry.TABLE_NAME, PROJECTION,
+                WordEntry.COLUMN_CATEGORY + " = ? AND " + WordEntry.COLUMN_POSITION + " >= ? AND "
+                        + WordEntry.COLUMN_POSITION + " < ?",
+                new String[]{category, String.valueOf(first), String.valueOf(first + count)},
+                null, null, WordEntry.COLUMN_POSITION);
+        try {
+            while (words.size() < count && cursor.moveToNext()) {
+                readWord(cursor, words, categoryIndex);
+            }
+        } finally {
+            cursor.close();
+        }
+        return words;
+    }
+
+    /**
+     * Append the word under the cursor to the given table
+     */
+    private void readWord(Cursor cursor, WordTable words, int categoryIndex) {
+        int imageResourceId = cursor.isNull(COLUMN_IMAGE)
+                ? WordTable.NO_IMAGE : resolveDrawable(cursor.getString(COLUMN_IMAGE));
+        int audioClipId = AudioBundles.getInstance(mContext)
+                .getClipId(cursor.getString(COLUMN_AUDIO));
+        words.addWord(categoryIndex, cursor.getString(COLUMN_DEFAULT_TRANSLATION),
+                cursor.getString(COLUMN_MIWOK_TRANSLATION), imageResourceId, audioClipId);
+    }
+
+    /**
+     * Map the vocabulary in the background the first time it is needed, or hand over the one
+     * that was already mapped, so its categories can be listed without reading the asset on the
+     * main thread.
+     *
+     * @param callback receives the vocabulary on the main thread
+     */
+    public void loadVocabulary(final VocabularyCallback callback) {
+        if (mVocabulary != null) {
+            callback.onVocabularyLoaded(mVocabulary);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mVocabulary = Vocabulary.getInstance(mContext);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onVocabularyLoaded(mVocabulary);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Build the index used to search every word of the vocabulary in the background,
+     * or hand over the one that was already built.
+     *
+     * @param callback receives the index on the main thread
+     */
+    public void loadSearchIndex(final SearchIndexCallback callback) {
+        if (mSearchIndex != null) {
+            callback.onSearchIndexLoaded(mSearchIndex);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mSearchIndex == null) {
+                    mSearchIndex = SearchIndex.build(Vocabulary.getInstance(mContext));
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onSearchIndexLoaded(mSearchIndex);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Load the review schedule of every word of the vocabulary in the background, or hand over
+     * the one that was already loaded.
+     *
+     * @param callback receives the schedule on the main thread
+     */
+    public void loadReviewScheduler(final ReviewSchedulerCallback callback) {
+        if (mReviewScheduler != null) {
+            callback.onReviewSchedulerLoaded(mReviewScheduler);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ReviewScheduler scheduler = readReviewScheduler();
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Keep the first one if it was loaded twice
+                        if (mReviewScheduler == null) {
+                            mReviewScheduler = scheduler;
+                        }
+                        callback.onReviewSchedulerLoaded(mReviewScheduler);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Build a schedule where every word is a new card, then restore the words that were
+     * reviewed before.
+     */
+    private ReviewScheduler readReviewScheduler() {
+        Vocabulary vocabulary = Vocabulary.getInstance(mContext);
+        int wordCount = vocabulary.getWordCount();
+        ReviewScheduler scheduler = new ReviewScheduler(wordCount);
+
+        HashMap<String, Integer> cards = new HashMap<>(wordCount * 2);
+        for (int word = 0; word < wordCount; word++) {
+            cards.put(vocabulary.getAudioName(word), word);
+        }
+
+        Cursor cursor = mDbHelper.getReadableDatabase().query(ReviewEntry.TABLE_NAME,
+                REVIEW_PROJECTION, null, null, null, null, null);
+        try {
+            while (cursor.moveToNext()) {
+                Integer card = cards.get(cursor.getString(0));
+                if (card == null) {
+                    // The word is no longer in the vocabulary
+                    continue;
+                }
+                scheduler.restore(card, cursor.getInt(1), cursor.getInt(2), cursor.getInt(3),
+                        cursor.getLong(4));
+            }
+        } finally {
+            cursor.close();
+        }
+        return scheduler;
+    }
+
+    /**
+     * Save the state of a card after it has been answered, in the background.
+     * This must be called from the main thread, right after the answer.
+     *
+     * @param scheduler is the schedule the card belongs to
+     * @param card is the number of the card, which is the index of its word in the vocabulary
+     */
+    public void saveReview(ReviewScheduler scheduler, int card) {
+        final ContentValues values = new ContentValues();
+        values.put(ReviewEntry.COLUMN_WORD, Vocabulary.getInstance(mContext).getAudioName(card));
+        values.put(ReviewEntry.COLUMN_EASINESS, scheduler.getEasiness(card));
+        values.put(ReviewEntry.COLUMN_INTERVAL, scheduler.getIntervalDays(card));
+        values.put(ReviewEntry.COLUMN_REPETITIONS, scheduler.getRepetitions(card));
+        values.put(ReviewEntry.COLUMN_DUE, scheduler.getDue(card));
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mDbHelper.getWritableDatabase().insertWithOnConflict(ReviewEntry.TABLE_NAME,
+                        null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+        });
+    }
+
+    /**
+     * Returns the ID of the drawable resource with the given name
+     */
+    int resolveDrawable(String name) {
+        synchronized (mDrawableResourceIds) {
+            Integer resourceId = mDrawableResourceIds.get(name);
+            if (resourceId == null) {
+                resourceId = mContext.getResources().getIdentifier(name, "drawable",
+                        mContext.getPackageName());
+                mDrawableResourceIds.put(name, resourceId);
+            }
+            return resourceId;
+        }
+    }
+}
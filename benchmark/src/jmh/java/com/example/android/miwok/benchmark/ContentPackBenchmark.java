@@ -0,0 +1,115 @@
+package com.example.android.miwok.benchmark;
+
+import com.example.android.miwok.ContentPackFile;
+import com.example.android.miwok.ContentPackWriter;
+import com.example.android.miwok.VocabularyWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures checking a content pack while it is streamed from a file, as installing it does,
+ * and opening an installed pack in place, which should not depend on the size of the pack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ContentPackBenchmark {
+
+    /* Size of each clip of the pack, about that of a pronunciation */
+    private static final int CLIP_SIZE = 32 * 1024;
+
+    @Param({"10", "100"})
+    public int packSizeMb;
+
+    private File mPack;
+
+    private FileInputStream mInstalledStream;
+
+    private FileChannel mInstalledChannel;
+
+    @Setup
+    public void setUp() throws IOException {
+        int clipCount = packSizeMb * 1024 * 1024 / CLIP_SIZE;
+        VocabularyWriter vocabulary = new VocabularyWriter();
+        vocabulary.addCategory("generated", "Generated", "#336699");
+        for (int i = 0; i < clipCount; i++) {
+            vocabulary.addWord("generated", "word " + i, "miwok " + i, null, "clip" + i);
+        }
+
+        File clip = File.createTempFile("clip", ".ogg");
+        clip.deleteOnExit();
+        byte[] bytes = new byte[CLIP_SIZE];
+        new Random(packSizeMb).nextBytes(bytes);
+        try (OutputStream out = new FileOutputStream(clip)) {
+            out.write(bytes);
+        }
+
+        ContentPackWriter writer = new ContentPackWriter();
+        writer.setVocabulary(vocabulary.toByteArray());
+        for (int i = 0; i < clipCount; i++) {
+            writer.addClip("clip" + i, clip);
+        }
+        mPack = File.createTempFile("generated", ".pack");
+        mPack.deleteOnExit();
+        try (OutputStream out = new FileOutputStream(mPack)) {
+            writer.writeTo(out);
+        }
+
+        mInstalledStream = new FileInputStream(mPack);
+        mInstalledChannel = mInstalledStream.getChannel();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mInstalledStream.close();
+    }
+
+    /**
+     * Stream the whole pack through the checks of an install, discarding what would be
+     * written to the installed file.
+     */
+    @Benchmark
+    public long copyVerified() throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(mPack), 64 * 1024)) {
+            return ContentPackFile.copy(in, new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            });
+        }
+    }
+
+    /**
+     * Map an installed pack and read its index, as the app does when it starts.
+     */
+    @Benchmark
+    public int open() throws IOException {
+        ByteBuffer buffer = mInstalledChannel.map(FileChannel.MapMode.READ_ONLY, 0,
+                mInstalledChannel.size());
+        return new ContentPackFile(buffer).getEntryCount();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.android.miwok.benchmark;
+
+import com.example.android.miwok.ReviewScheduler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures answering the next card of a review, which should not depend on the size of the
+ * deck.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReviewBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int cardCount;
+
+    private ReviewScheduler mScheduler;
+
+    private Random mRandom;
+
+    /* Time of the last answer */
+    private long mNow;
+
+    @Setup
+    public void setUp() {
+        mScheduler = new ReviewScheduler(cardCount);
+        mRandom = new Random(cardCount);
+        mNow = 0;
+    }
+
+    /**
+     * Take the card that is due first, answer it with a random grade and schedule it again.
+     */
+    @Benchmark
+    public int answerNext() {
+        int card = mScheduler.peekNext();
+        mNow = Math.max(mNow, mScheduler.getDue(card));
+        mScheduler.answer(card, mRandom.nextInt(ReviewScheduler.GRADE_PERFECT + 1), mNow);
+        return card;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.miwok.benchmark;
+
+import com.example.android.miwok.SearchIndex;
+import com.example.android.miwok.VocabularyFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the search index and running the queries typed in the search screen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    /* Same limit as the search screen */
+    private static final int MAX_RESULTS = 100;
+
+    /* What a user types, one keystroke at a time, including a query that matches nothing */
+    private static final String[] QUERIES = {
+            "t", "te", "tet", "wo'e", "WO\u2019E", "epe", "\u0259p\u0259", "go", "where are",
+            "father", "chal", "xyz"
+    };
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int wordCount;
+
+    private VocabularyFile mVocabulary;
+
+    private SearchIndex mSearchIndex;
+
+    private int mNextQuery;
+
+    @Setup
+    public void setUp() {
+        mVocabulary = new VocabularyFile(
+                ByteBuffer.wrap(SyntheticVocabulary.create(wordCount).toByteArray()));
+        mSearchIndex = SearchIndex.build(mVocabulary);
+    }
+
+    @Benchmark
+    public SearchIndex buildIndex() {
+        return SearchIndex.build(mVocabulary);
+    }
+
+    @Benchmark
+    public int[] search() {
+        mNextQuery = (mNextQuery + 1) % QUERIES.length;
+        return mSearchIndex.search(QUERIES[mNextQuery], MAX_RESULTS);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.android.miwok.benchmark;
+
+import com.example.android.miwok.VocabularyWriter;
+
+import java.util.Random;
+
+/**
+ * Builds vocabularies of any size for the benchmarks. Words are made of random syllables,
+ * some of them with the diacritics, glottal stops and schwas of the real vocabulary, and the
+ * same seed always gives the same vocabulary.
+ */
+final class SyntheticVocabulary {
+
+    /** Number of words per category */
+    static final int CATEGORY_SIZE = 100;
+
+    private static final String[] SYLLABLES = {
+            "lu", "tti", "o", "ti", "iko", "to", "loo", "ko", "su", "oy", "yi", "sa", "ma",
+            "sso", "kka", "te", "mmo", "ke", "ne", "ka", "wi", "nta", "wo\u2019e", "na\u2019a",
+            "cha", "\u0259", "p\u0259", "\u1E6Da", "ang", "si", "tu", "chi", "li", "t\u00E9"
+    };
+
+    private static final String[] ENGLISH = {
+            "one", "two", "three", "red", "green", "father", "mother", "where", "are", "you",
+            "going", "what", "is", "your", "name", "come", "here", "let's", "go", "yes"
+    };
+
+    private SyntheticVocabulary() {
+    }
+
+    /**
+     * Returns a vocabulary of the given number of words, in categories of
+     * {@link #CATEGORY_SIZE} words named category0, category1 and so on.
+     */
+    static VocabularyWriter create(int wordCount) {
+        Random random = new Random(wordCount);
+        VocabularyWriter writer = new VocabularyWriter();
+        int categoryCount = categoryCount(wordCount);
+        for (int category = 0; category < categoryCount; category++) {
+            writer.addCategory(categoryName(category), "category_title", "category_color");
+        }
+        for (int word = 0; word < wordCount; word++) {
+            String name = "word_" + word;
+            writer.addWord(categoryName(word / CATEGORY_SIZE),
+                    phrase(random, ENGLISH, 1 + random.nextInt(3), " "),
+                    phrase(random, SYLLABLES, 2 + random.nextInt(4), ""),
+                    random.nextInt(4) == 0 ? null : name, name);
+        }
+        return writer;
+    }
+
+    static int categoryCount(int wordCount) {
+        return (wordCount + CATEGORY_SIZE - 1) / CATEGORY_SIZE;
+    }
+
+    static String categoryName(int category) {
+        return "category" + category;
+    }
+
+    private static String phrase(Random random, String[] parts, int count, String separator) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(parts[random.nextInt(parts.length)]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.android.miwok.benchmark;
+
+import com.example.android.miwok.VocabularyFile;
+import com.example.android.miwok.VocabularyWriter;
+import com.example.android.miwok.WordTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing a compiled vocabulary, reading every word back from it, loading it into a
+ * {@link WordTable}, and looking up the words of a category.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VocabularyBenchmark {
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int wordCount;
+
+    private VocabularyWriter mWriter;
+
+    private ByteBuffer mBuffer;
+
+    private VocabularyFile mVocabulary;
+
+    /* Category looked up next by lookupByCategory */
+    private int mNextCategory;
+
+    @Setup
+    public void setUp() {
+        mWriter = SyntheticVocabulary.create(wordCount);
+        mBuffer = ByteBuffer.wrap(mWriter.toByteArray());
+        mVocabulary = new VocabularyFile(mBuffer);
+    }
+
+    /**
+     * Compile the whole vocabulary into its binary form.
+     */
+    @Benchmark
+    public byte[] serialize() {
+        return mWriter.toByteArray();
+    }
+
+    /**
+     * Open a compiled vocabulary and decode the translations and resource names of every word,
+     * which is what building a table of all the words costs.
+     */
+    @Benchmark
+    public void constructWordTable(Blackhole blackhole) {
+        VocabularyFile vocabulary = new VocabularyFile(mBuffer);
+        for (int word = 0; word < vocabulary.getWordCount(); word++) {
+            blackhole.consume(vocabulary.getDefaultTranslation(word));
+            blackhole.consume(vocabulary.getMiwokTranslation(word));
+            blackhole.consume(vocabulary.getImageKey(word));
+            blackhole.consume(vocabulary.getAudioKey(word));
+        }
+    }
+
+    /**
+     * Load every word of a compiled vocabulary into a {@link WordTable}. Run with -prof gc to see
+     * how much is allocated for it.
+     */
+    @Benchmark
+    public WordTable loadWordTable() {
+        VocabularyFile vocabulary = new VocabularyFile(mBuffer);
+        WordTable table = new WordTable(vocabulary.getWordCount());
+        for (int category = 0; category < vocabulary.getCategoryCount(); category++) {
+            int categoryIndex = table.addCategory(vocabulary.getCategoryName(category));
+            int first = vocabulary.getFirstWord(category);
+            int end = first + vocabulary.getCategorySize(category);
+            for (int word = first; word < end; word++) {
+                table.addWord(categoryIndex, vocabulary.getDefaultTranslation(word),
+                        vocabulary.getMiwokTranslation(word),
+                        vocabulary.getImageKey(word) == VocabularyFile.NO_STRING
+                                ? WordTable.NO_IMAGE : vocabulary.getImageKey(word),
+                        vocabulary.getAudioKey(word));
+            }
+        }
+        table.trimToSize();
+        return table;
+    }
+
+    /**
+     * Find a category by name and decode its first screen of words.
+     */
+    @Benchmark
+    public void lookupByCategory(Blackhole blackhole) {
+        int categoryCount = mVocabulary.getCategoryCount();
+        mNextCategory = (mNextCategory + 7) % categoryCount;
+        int category = mVocabulary.findCategory(SyntheticVocabulary.categoryName(mNextCategory));
+        int first = mVocabulary.getFirstWord(category);
+        int count = Math.min(10, mVocabulary.getCategorySize(category));
+        for (int word = first; word < first + count; word++) {
+            blackhole.consume(mVocabulary.getMiwokTranslation(word));
+            blackhole.consume(mVocabulary.getDefaultTranslation(word));
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.android.miwok;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * {@link ContentPackFile} reads a content pack, a single file bundling the vocabulary, images
+ * and audio clips of one or more categories, as written by {@link ContentPackWriter}.
+ *
+ * The format is big-endian:
+ *
+ *   header, {@link #HEADER_SIZE} bytes
+ *     int   magic, "MIWP"
+ *     int   version, {@link #VERSION}
+ *     int   number of entries
+ *     int   length of the index in bytes
+ *     int   CRC32 of the index
+ *     int   reserved, 0
+ *   index
+ *     entry table, {@link #ENTRY_SIZE} bytes per entry
+ *       int   type, one of the TYPE_ constants
+ *       int   offset of the entry name in the name table
+ *       long  offset of the entry data from the start of the file
+ *       int   length of the entry data in bytes
+ *       int   CRC32 of the entry data
+ *     name table, each name an unsigned short length followed by that many bytes of UTF-8
+ *   data of every entry, in entry order and without gaps, starting right after the index
+ *
+ * A pack holds exactly one {@link #TYPE_VOCABULARY} entry, a compiled vocabulary read by
+ * {@link VocabularyFile}. The image and audio names of its words are the names of the
+ * {@link #TYPE_IMAGE} and {@link #TYPE_AUDIO} entries, and the title and color names of its
+ * categories are the title itself and a "#RRGGBB" color, since a pack brings no resources.
+ *
+ * An installed pack is read in place: the index is read from a buffer over the file, usually
+ * memory-mapped, and entries are handed out as offsets into the file, or as streams over the
+ * buffer, without being copied. {@link #copy(InputStream, OutputStream)} checks a pack while it
+ * is being installed, holding no more than the index and a small buffer in memory.
+ */
+public class ContentPackFile {
+
+    /* "MIWP" */
+    static final int MAGIC = 0x4D495750;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 24;
+    static final int ENTRY_SIZE = 24;
+
+    /*
+     * Largest index accepted, so a corrupt header can not make us allocate gigabytes. This is
+     * room for the names of hundreds of thousands of entries.
+     */
+    static final int MAX_INDEX_LENGTH = 16 * 1024 * 1024;
+
+    /** Type of the entry holding the compiled vocabulary of the pack */
+    public static final int TYPE_VOCABULARY = 0;
+
+    /** Type of the entries holding a word image, as a PNG or JPEG file */
+    public static final int TYPE_IMAGE = 1;
+
+    /** Type of the entries holding a pronunciation clip, as a complete audio file */
+    public static final int TYPE_AUDIO = 2;
+
+    /* Size of the buffer used to copy entry data */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /* The whole pack, only ever read through absolute gets */
+    private final ByteBuffer mBuffer;
+
+    private final int mEntryCount;
+
+    /* Where the name table starts in mBuffer */
+    private final int mNameTableStart;
+
+    /* Index of the vocabulary entry */
+    private final int mVocabularyEntry;
+
+    /**
+     * Create a new {@link ContentPackFile} object. The index is checked against its checksum,
+     * and the names and data of its entries must lie within the index and the buffer, but the
+     * entry data is not checked, that is what {@link #copy(InputStream, OutputStream)} is for.
+     *
+     * @param buffer holds the whole pack, it is not copied
+     * @throws IOException if the buffer does not hold a valid pack
+     */
+    public ContentPackFile(ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Content pack is too short");
+        }
+        int indexLength = checkHeader(buffer.getInt(0), buffer.getInt(4), buffer.getInt(8),
+                buffer.getInt(12));
+        mEntryCount = buffer.getInt(8);
+        if (buffer.capacity() < HEADER_SIZE + indexLength) {
+            throw new IOException("Content pack is too short for its index");
+        }
+        CRC32 crc = new CRC32();
+        update(crc, buffer, HEADER_SIZE, indexLength);
+        if ((int) crc.getValue() != buffer.getInt(16)) {
+            throw new IOException("Content pack index is corrupt");
+        }
+        mNameTableStart = HEADER_SIZE + mEntryCount * ENTRY_SIZE;
+
+        long expectedOffset = HEADER_SIZE + indexLength;
+        int vocabularyEntry = -1;
+        for (int entry = 0; entry < mEntryCount; entry++) {
+            checkEntry(entry, getType(entry), getOffset(entry), getLength(entry),
+                    expectedOffset);
+            checkName(entry, buffer, HEADER_SIZE, mEntryCount, indexLength);
+            expectedOffset += getLength(entry);
+            if (getType(entry) == TYPE_VOCABULARY) {
+                vocabularyEntry = entry;
+            }
+        }
+        if (vocabularyEntry < 0) {
+            throw new IOException("Content pack has no vocabulary");
+        }
+        if (buffer.capacity() < expectedOffset) {
+            throw new IOException("Content pack is truncated");
+        }
+        mVocabularyEntry = vocabularyEntry;
+    }
+
+    /**
+     * Returns the number of entries in the pack
+     */
+    public int getEntryCount() {
+        return mEntryCount;
+    }
+
+    /**
+     * Returns the type of the given entry, one of the TYPE_ constants
+     */
+    public int getType(int entry) {
+        return mBuffer.getInt(entryStart(entry));
+    }
+
+    /**
+     * Returns the name of the given entry
+     */
+    public String getName(int entry) {
+        int position = mNameTableStart + mBuffer.getInt(entryStart(entry) + 4);
+        int length = mBuffer.getShort(position) & 0xFFFF;
+        byte[] utf8 = new byte[length];
+        ByteBuffer source = mBuffer.duplicate();
+        source.position(position + 2);
+        source.get(utf8);
+        return new String(utf8, VocabularyFile.UTF_8);
+    }
+
+    /**
+     * Returns where the data of the given entry starts, from the start of the file
+     */
+    public long getOffset(int entry) {
+        return mBuffer.getLong(entryStart(entry) + 8);
+    }
+
+    /**
+     * Returns the length in bytes of the data of the given entry
+     */
+    public int getLength(int entry) {
+        return mBuffer.getInt(entryStart(entry) + 16);
+    }
+
+    /**
+     * Returns the index of the entry of the given type with the given name, or -1 if there is
+     * none
+     */
+    public int findEntry(int type, String name) {
+        for (int entry = 0; entry < mEntryCount; entry++) {
+            if (getType(entry) == type && name.equals(getName(entry))) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the vocabulary of the pack, read in place from the buffer. It is
+     * {@link VocabularyFile#check() checked} first, which reads its tables.
+     *
+     * @throws IOException if the vocabulary is malformed
+     */
+    public VocabularyFile getVocabulary() throws IOException {
+        try {
+            VocabularyFile vocabulary = new VocabularyFile(slice(mVocabularyEntry));
+            vocabulary.check();
+            return vocabulary;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Content pack has an invalid vocabulary", e);
+        }
+    }
+
+    /**
+     * Returns a stream over the data of the given entry, read in place from the buffer
+     */
+    public InputStream openEntry(int entry) {
+        return new BufferInputStream(slice(entry));
+    }
+
+    /**
+     * Copy a pack from one stream to another, checking it on the way: the header, the index
+     * and the data of every entry are compared with their checksums as they go through, and
+     * the stream must end right after the last entry. Only the index and a small buffer are
+     * held in memory, whatever the size of the pack.
+     *
+     * Nothing is rolled back when the pack turns out to be invalid, so the destination should
+     * be a temporary file that is only kept if this method returns.
+     *
+     * @return the number of bytes copied
+     * @throws IOException if the pack is invalid, or either stream fails
+     */
+    public static long copy(InputStream in, OutputStream out) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[HEADER_SIZE];
+        data.readFully(header);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        int entryCount = headerBuffer.getInt(8);
+        int indexLength = checkHeader(headerBuffer.getInt(0), headerBuffer.getInt(4),
+                entryCount, headerBuffer.getInt(12));
+
+        byte[] index = new byte[indexLength];
+        data.readFully(index);
+        CRC32 crc = new CRC32();
+        crc.update(index, 0, indexLength);
+        if ((int) crc.getValue() != headerBuffer.getInt(16)) {
+            throw new IOException("Content pack index is corrupt");
+        }
+        out.write(header);
+        out.write(index);
+
+        ByteBuffer indexBuffer = ByteBuffer.wrap(index);
+        long copied = HEADER_SIZE + indexLength;
+        boolean hasVocabulary = false;
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        for (int entry = 0; entry < entryCount; entry++) {
+            int start = entry * ENTRY_SIZE;
+            int type = indexBuffer.getInt(start);
+            int length = indexBuffer.getInt(start + 16);
+            checkEntry(entry, type, indexBuffer.getLong(start + 8), length, copied);
+            checkName(entry, indexBuffer, 0, entryCount, indexLength);
+            hasVocabulary |= type == TYPE_VOCABULARY;
+
+            crc.reset();
+            int remaining = length;
+            while (remaining > 0) {
+                int read = data.read(buffer, 0, Math.min(remaining, buffer.length));
+                if (read < 0) {
+                    throw new EOFException("Content pack is truncated");
+                }
+                crc.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+            if ((int) crc.getValue() != indexBuffer.getInt(start + 20)) {
+                throw new IOException("Content pack entry " + entry + " is corrupt");
+            }
+            copied += length;
+        }
+        if (!hasVocabulary) {
+            throw new IOException("Content pack has no vocabulary");
+        }
+        if (data.read() >= 0) {
+            throw new IOException("Content pack has trailing data");
+        }
+        return copied;
+    }
+
+    /**
+     * Check the fields of the header that can be checked on their own.
+     *
+     * @return the length of the index
+     */
+    private static int checkHeader(int magic, int version, int entryCount, int indexLength)
+            throws IOException {
+        if (magic != MAGIC || version != VERSION) {
+            throw new IOException("Not a version " + VERSION + " content pack");
+        }
+        if (entryCount < 0 || indexLength < 0 || indexLength > MAX_INDEX_LENGTH
+                || indexLength < (long) entryCount * ENTRY_SIZE) {
+            throw new IOException("Content pack header is corrupt");
+        }
+        return indexLength;
+    }
+
+    /**
+     * Check that an entry has a known type and starts right where the previous one ended.
+     */
+    private static void checkEntry(int entry, int type, long offset, int length,
+                                   long expectedOffset) throws IOException {
+        if (type < TYPE_VOCABULARY || type > TYPE_AUDIO) {
+            throw new IOException("Content pack entry " + entry + " has unknown type " + type);
+        }
+        if (offset != expectedOffset || length < 0) {
+            throw new IOException("Content pack entry " + entry + " is misplaced");
+        }
+    }
+
+    /**
+     * Check that the name of an entry lies within the name table.
+     *
+     * @param index holds the index at the given offset
+     */
+    private static void checkName(int entry, ByteBuffer index, int indexStart, int entryCount,
+                                  int indexLength) throws IOException {
+        int nameTableStart = indexStart + entryCount * ENTRY_SIZE;
+        int indexEnd = indexStart + indexLength;
+        long position = (long) nameTableStart
+                + index.getInt(indexStart + entry * ENTRY_SIZE + 4);
+        if (position < nameTableStart || position + 2 > indexEnd
+                || position + 2 + (index.getShort((int) position) & 0xFFFF) > indexEnd) {
+            throw new IOException("Content pack entry " + entry + " has no name in the index");
+        }
+    }
+
+    private int entryStart(int entry) {
+        if (entry < 0 || entry >= mEntryCount) {
+            throw new IndexOutOfBoundsException("Entry " + entry + " of " + mEntryCount);
+        }
+        return HEADER_SIZE + entry * ENTRY_SIZE;
+    }
+
+    /**
+     * Returns a buffer over the data of the given entry, sharing the content of mBuffer
+     */
+    private ByteBuffer slice(int entry) {
+        ByteBuffer data = mBuffer.duplicate();
+        int offset = (int) getOffset(entry);
+        data.limit(offset + getLength(entry));
+        data.position(offset);
+        return data.slice();
+    }
+
+    /**
+     * Add a range of the given buffer to a checksum, a chunk at a time so a mapped buffer is
+     * never copied whole.
+     */
+    private static void update(CRC32 crc, ByteBuffer buffer, int offset, int length) {
+        byte[] chunk = new byte[Math.min(length, COPY_BUFFER_SIZE)];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        int remaining = length;
+        while (remaining > 0) {
+            int count = Math.min(remaining, chunk.length);
+            source.get(chunk, 0, count);
+            crc.update(chunk, 0, count);
+            remaining -= count;
+        }
+    }
+
+    /**
+     * A stream over the remaining bytes of a buffer.
+     */
+    private static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer mBuffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, mBuffer.remaining());
+            mBuffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, mBuffer.remaining()));
+            mBuffer.position(mBuffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.android.miwok;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * {@link ContentPackWriter} bundles a compiled vocabulary with the images and clips of its
+ * words into the content pack format read by {@link ContentPackFile}, where the format is
+ * described.
+ *
+ * Images and clips are added as files and streamed into the pack, once to compute their
+ * checksums and once to write them, so a large pack never has to fit in memory.
+ */
+public class ContentPackWriter {
+
+    /* Entries in the order they are written */
+    private final List<Entry> mEntries = new ArrayList<>();
+
+    /* Type and name of every entry, to refuse duplicates */
+    private final HashSet<String> mKeys = new HashSet<>();
+
+    private boolean mHasVocabulary;
+
+    /**
+     * Set the vocabulary of the pack, as compiled by {@link VocabularyWriter}. Its categories
+     * use their title as title name and a "#RRGGBB" color as color name, and its words use the
+     * names of the images and clips added to the pack.
+     */
+    public void setVocabulary(byte[] vocabulary) {
+        if (mHasVocabulary) {
+            throw new IllegalStateException("The vocabulary was already set");
+        }
+        // Fail now rather than on the device
+        new VocabularyFile(ByteBuffer.wrap(vocabulary)).check();
+        add(new Entry(ContentPackFile.TYPE_VOCABULARY, "vocabulary", vocabulary, null));
+        mHasVocabulary = true;
+    }
+
+    /**
+     * Add an image, a PNG or JPEG file
+     *
+     * @param name is the image name used by the words of the vocabulary
+     */
+    public void addImage(String name, File file) {
+        add(new Entry(ContentPackFile.TYPE_IMAGE, name, null, file));
+    }
+
+    /**
+     * Add a pronunciation clip, a complete audio file the media player can play
+     *
+     * @param name is the audio name used by the words of the vocabulary
+     */
+    public void addClip(String name, File file) {
+        add(new Entry(ContentPackFile.TYPE_AUDIO, name, null, file));
+    }
+
+    /**
+     * Write the pack to the given stream.
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        if (!mHasVocabulary) {
+            throw new IllegalStateException("A content pack needs a vocabulary");
+        }
+
+        // The names and checksums go into the index, which comes before the data
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        DataOutputStream namesOut = new DataOutputStream(names);
+        int[] nameOffsets = new int[mEntries.size()];
+        long[] lengths = new long[mEntries.size()];
+        int[] checksums = new int[mEntries.size()];
+        byte[] buffer = new byte[64 * 1024];
+        for (int i = 0; i < mEntries.size(); i++) {
+            Entry entry = mEntries.get(i);
+            byte[] utf8 = entry.mName.getBytes(VocabularyFile.UTF_8);
+            if (utf8.length > 0xFFFF) {
+                throw new IllegalArgumentException("Entry name is too long: " + entry.mName);
+            }
+            nameOffsets[i] = namesOut.size();
+            namesOut.writeShort(utf8.length);
+            namesOut.write(utf8);
+
+            CRC32 crc = new CRC32();
+            InputStream in = entry.open();
+            try {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    crc.update(buffer, 0, read);
+                    lengths[i] += read;
+                }
+            } finally {
+                in.close();
+            }
+            if (lengths[i] > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Entry is too large: " + entry.mName);
+            }
+            checksums[i] = (int) crc.getValue();
+        }
+
+        int indexLength = mEntries.size() * ContentPackFile.ENTRY_SIZE + names.size();
+        ByteArrayOutputStream index = new ByteArrayOutputStream(indexLength);
+        DataOutputStream indexOut = new DataOutputStream(index);
+        long offset = ContentPackFile.HEADER_SIZE + indexLength;
+        for (int i = 0; i < mEntries.size(); i++) {
+            indexOut.writeInt(mEntries.get(i).mType);
+            indexOut.writeInt(nameOffsets[i]);
+            indexOut.writeLong(offset);
+            indexOut.writeInt((int) lengths[i]);
+            indexOut.writeInt(checksums[i]);
+            offset += lengths[i];
+        }
+        names.writeTo(indexOut);
+        CRC32 indexCrc = new CRC32();
+        indexCrc.update(index.toByteArray());
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(ContentPackFile.MAGIC);
+        out.writeInt(ContentPackFile.VERSION);
+        out.writeInt(mEntries.size());
+        out.writeInt(indexLength);
+        out.writeInt((int) indexCrc.getValue());
+        out.writeInt(0);
+        index.writeTo(out);
+
+        for (int i = 0; i < mEntries.size(); i++) {
+            Entry entry = mEntries.get(i);
+            long written = 0;
+            InputStream in = entry.open();
+            try {
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, read);
+                    written += read;
+                }
+            } finally {
+                in.close();
+            }
+            if (written != lengths[i]) {
+                throw new IOException(entry.mName + " changed while the pack was written");
+            }
+        }
+        out.flush();
+    }
+
+    private void add(Entry entry) {
+        if (!mKeys.add(entry.mType + "/" + entry.mName)) {
+            throw new IllegalArgumentException("Entry " + entry.mName + " was already added");
+        }
+        mEntries.add(entry);
+    }
+
+    /**
+     * An entry of the pack, whose data is either in memory or in a file.
+     */
+    private static class Entry {
+
+        private final int mType;
+
+        private final String mName;
+
+        private final byte[] mBytes;
+
+        private final File mFile;
+
+        Entry(int type, String name, byte[] bytes, File file) {
+            mType = type;
+            mName = name;
+            mBytes = bytes;
+            mFile = file;
+        }
+
+        InputStream open() throws IOException {
+            return mBytes != null ? new ByteArrayInputStream(mBytes)
+                    : new FileInputStream(mFile);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.android.miwok;
+
+/**
+ * {@link LatencyHistogram} counts durations in buckets whose bounds double from one bucket to
+ * the next, so recording one is a few arithmetic operations on an int array and never
+ * allocates. Percentiles are read back to within a factor of two, which is plenty to tell a
+ * 5 ms tap from a 150 ms one.
+ *
+ * Durations are in microseconds. A histogram is not thread safe.
+ */
+public class LatencyHistogram {
+
+    /*
+     * Bucket 0 holds durations under 1us and bucket b those from 2^(b-1) up to 2^b us.
+     * The last bucket also holds everything longer, from about 16 seconds.
+     */
+    private static final int BUCKET_COUNT = 26;
+
+    private final int[] mCounts = new int[BUCKET_COUNT];
+
+    private long mCount;
+
+    private long mSumMicros;
+
+    private long mMaxMicros;
+
+    /**
+     * Count one duration.
+     */
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+        mCounts[bucket]++;
+        mCount++;
+        mSumMicros += micros;
+        mMaxMicros = Math.max(mMaxMicros, micros);
+    }
+
+    /**
+     * Returns the number of durations counted
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the mean duration, 0 if none was counted
+     */
+    public long getMeanMicros() {
+        return mCount == 0 ? 0 : mSumMicros / mCount;
+    }
+
+    /**
+     * Returns the longest duration, 0 if none was counted
+     */
+    public long getMaxMicros() {
+        return mMaxMicros;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile, which is never more than twice the real
+     * value nor more than the longest duration counted. Returns 0 if none was counted.
+     *
+     * @param percentile is between 0 and 100
+     */
+    public long getPercentileMicros(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(mCount * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mCounts[bucket];
+            if (seen >= rank && seen > 0) {
+                return Math.min(1L << bucket, mMaxMicros);
+            }
+        }
+        return mMaxMicros;
+    }
+
+    /**
+     * Forget every duration counted so far.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            mCounts[bucket] = 0;
+        }
+        mCount = 0;
+        mSumMicros = 0;
+        mMaxMicros = 0;
+    }
+}
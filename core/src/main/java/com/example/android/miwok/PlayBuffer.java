@@ -0,0 +1,155 @@
+package com.example.android.miwok;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * {@link PlayBuffer} holds the pronunciations played since the app's play log was last
+ * written: a play is stored in a ring buffer of fixed capacity without allocating, and the
+ * buffer is later drained in one go, with the repeated plays of a word merged into a single
+ * {@link Count}.
+ *
+ * When the buffer is full the oldest play is overwritten and counted as dropped. A buffer is
+ * not thread safe.
+ */
+public class PlayBuffer {
+
+    /**
+     * The plays of one word of one category, from a single drain.
+     */
+    public static class Count {
+
+        private final String mCategory;
+
+        private final int mClipId;
+
+        private final long mFirstTime;
+
+        private long mLastTime;
+
+        private int mPlays;
+
+        Count(String category, int clipId, long time) {
+            mCategory = category;
+            mClipId = clipId;
+            mFirstTime = time;
+            mLastTime = time;
+        }
+
+        /** Returns the name of the category the word was played from */
+        public String getCategory() {
+            return mCategory;
+        }
+
+        /** Returns the ID of the pronunciation clip of the word */
+        public int getClipId() {
+            return mClipId;
+        }
+
+        /** Returns the time of the first play */
+        public long getFirstTime() {
+            return mFirstTime;
+        }
+
+        /** Returns the time of the last play */
+        public long getLastTime() {
+            return mLastTime;
+        }
+
+        /** Returns the number of plays */
+        public int getPlays() {
+            return mPlays;
+        }
+    }
+
+    /* The ring buffer, one slot per play */
+    private final int[] mClipIds;
+    private final String[] mCategories;
+    private final long[] mTimes;
+
+    /* Slot of the oldest play that has not been drained, and number of plays after it */
+    private int mStart;
+    private int mCount;
+
+    /* Plays overwritten before they could be drained */
+    private int mDropped;
+
+    /**
+     * Create an empty {@link PlayBuffer} with room for the given number of plays.
+     */
+    public PlayBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is not positive");
+        }
+        mClipIds = new int[capacity];
+        mCategories = new String[capacity];
+        mTimes = new long[capacity];
+    }
+
+    /**
+     * Store a play, overwriting the oldest one if the buffer is full.
+     *
+     * @param clipId is the ID of the pronunciation clip that was played
+     * @param category is the name of the category it was played from
+     * @param time is when it was played
+     * @return the number of plays waiting to be drained
+     */
+    public int record(int clipId, String category, long time) {
+        int capacity = mClipIds.length;
+        int slot;
+        if (mCount == capacity) {
+            slot = mStart;
+            mStart = (mStart + 1) % capacity;
+            mDropped++;
+        } else {
+            slot = (mStart + mCount) % capacity;
+            mCount++;
+        }
+        mClipIds[slot] = clipId;
+        mCategories[slot] = category;
+        mTimes[slot] = time;
+        return mCount;
+    }
+
+    /**
+     * Returns the number of plays waiting to be drained
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Returns the number of plays overwritten since the last call, and starts counting again
+     */
+    public int takeDropped() {
+        int dropped = mDropped;
+        mDropped = 0;
+        return dropped;
+    }
+
+    /**
+     * Empty the buffer, merging the plays of each word of each category.
+     *
+     * @return the plays of each word, in the order the words were first played
+     */
+    public List<Count> drain() {
+        int capacity = mClipIds.length;
+        LinkedHashMap<String, Count> counts = new LinkedHashMap<>();
+        for (int i = 0; i < mCount; i++) {
+            int slot = (mStart + i) % capacity;
+            String key = mCategories[slot] + '\t' + mClipIds[slot];
+            Count count = counts.get(key);
+            if (count == null) {
+                count = new Count(mCategories[slot], mClipIds[slot], mTimes[slot]);
+                counts.put(key, count);
+            }
+            count.mLastTime = mTimes[slot];
+            count.mPlays++;
+            mCategories[slot] = null;
+        }
+        mStart = (mStart + mCount) % capacity;
+        mCount = 0;
+        return new ArrayList<>(counts.values());
+    }
+}
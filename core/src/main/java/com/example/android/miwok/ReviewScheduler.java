@@ -0,0 +1,253 @@
+package com.example.android.miwok;
+
+import java.util.Arrays;
+
+/**
+ * {@link ReviewScheduler} decides when each card of a spaced repetition review comes back,
+ * following the SM-2 algorithm: every answer is graded from 0 to 5, a card answered well comes
+ * back after longer and longer intervals, and one that was forgotten starts over.
+ *
+ * Cards are numbered from 0 and their state is kept in parallel arrays. They are ordered by
+ * due time in a binary heap that also knows where each card sits in it, so the next card is
+ * found in constant time and an answer only moves the answered card, in O(log n). Nothing ever
+ * scans the whole deck.
+ *
+ * Times are in milliseconds, on whatever clock the caller uses. The scheduler is not thread
+ * safe.
+ */
+public class ReviewScheduler {
+
+    /** Lowest grade, the card was not remembered at all */
+    public static final int GRADE_BLACKOUT = 0;
+
+    /** Lowest grade at which a card counts as remembered */
+    public static final int GRADE_PASS = 3;
+
+    /** Highest grade, the card was remembered without hesitation */
+    public static final int GRADE_PERFECT = 5;
+
+    /** Easiness of a card that has never been answered, in hundredths */
+    public static final int INITIAL_EASINESS = 250;
+
+    /* SM-2 never lets the easiness of a card fall below 1.3 */
+    private static final int MIN_EASINESS = 130;
+
+    /** Length of a day, the unit of review intervals */
+    public static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    /*
+     * A card that was forgotten comes back within the same session after this long, before
+     * starting over with a one day interval the next time it is passed.
+     */
+    private static final long RELEARN_DELAY_MS = 10 * 60 * 1000L;
+
+    /* State of each card, by card number */
+    private int[] mEasiness;
+    private int[] mIntervalDays;
+    private int[] mRepetitions;
+    private long[] mDue;
+
+    /* Cards ordered by due time, then by card number, as a binary min-heap */
+    private int[] mHeap;
+
+    /* Where each card is in mHeap */
+    private int[] mHeapIndex;
+
+    private int mSize;
+
+    /**
+     * Create a {@link ReviewScheduler} of the given number of new cards, all due right away
+     * and coming up in the order of their numbers.
+     */
+    public ReviewScheduler(int cardCount) {
+        mEasiness = new int[cardCount];
+        mIntervalDays = new int[cardCount];
+        mRepetitions = new int[cardCount];
+        mDue = new long[cardCount];
+        mHeap = new int[cardCount];
+        mHeapIndex = new int[cardCount];
+        Arrays.fill(mEasiness, INITIAL_EASINESS);
+
+        // Every card has the same due time, so cards in order already make a valid heap
+        for (int card = 0; card < cardCount; card++) {
+            mHeap[card] = card;
+            mHeapIndex[card] = card;
+        }
+        mSize = cardCount;
+    }
+
+    /**
+     * Returns the number of cards
+     */
+    public int getCardCount() {
+        return mSize;
+    }
+
+    /**
+     * Restore the state of a card that was reviewed before, as saved after its last answer.
+     *
+     * @param card is the number of the card
+     * @param easiness is its easiness, in hundredths
+     * @param intervalDays is the interval after which it was last scheduled
+     * @param repetitions is the number of times in a row it was remembered
+     * @param due is when it is due next
+     */
+    public void restore(int card, int easiness, int intervalDays, int repetitions, long due) {
+        checkCard(card);
+        mEasiness[card] = Math.max(easiness, MIN_EASINESS);
+        mIntervalDays[card] = intervalDays;
+        mRepetitions[card] = repetitions;
+        reschedule(card, due);
+    }
+
+    /**
+     * Returns the card that is due first, which may not be due yet, or -1 if there are no cards
+     */
+    public int peekNext() {
+        return mSize == 0 ? -1 : mHeap[0];
+    }
+
+    /**
+     * Returns the card that is due first if it is due at the given time, or -1
+     */
+    public int nextDue(long now) {
+        int card = peekNext();
+        return card >= 0 && mDue[card] <= now ? card : -1;
+    }
+
+    /**
+     * Grade the answer to a card and schedule its next review.
+     *
+     * @param card is the number of the card
+     * @param grade is how well it was remembered, from {@link #GRADE_BLACKOUT} to
+     *              {@link #GRADE_PERFECT}
+     * @param now is the time of the answer
+     */
+    public void answer(int card, int grade, long now) {
+        checkCard(card);
+        if (grade < GRADE_BLACKOUT || grade > GRADE_PERFECT) {
+            throw new IllegalArgumentException("Grade " + grade + " is not between "
+                    + GRADE_BLACKOUT + " and " + GRADE_PERFECT);
+        }
+
+        // EF' = EF + (0.1 - (5 - q) * (0.08 + (5 - q) * 0.02)), in hundredths
+        int miss = GRADE_PERFECT - grade;
+        mEasiness[card] = Math.max(MIN_EASINESS,
+                mEasiness[card] + 10 - miss * (8 + miss * 2));
+
+        if (grade < GRADE_PASS) {
+            mRepetitions[card] = 0;
+            mIntervalDays[card] = 0;
+            reschedule(card, now + RELEARN_DELAY_MS);
+            return;
+        }
+
+        int repetitions = ++mRepetitions[card];
+        if (repetitions == 1) {
+            mIntervalDays[card] = 1;
+        } else if (repetitions == 2) {
+            mIntervalDays[card] = 6;
+        } else {
+            mIntervalDays[card] = (int) Math.min(Integer.MAX_VALUE,
+                    ((long) mIntervalDays[card] * mEasiness[card] + 50) / 100);
+        }
+        reschedule(card, now + mIntervalDays[card] * DAY_MS);
+    }
+
+    /**
+     * Returns the easiness of the given card, in hundredths
+     */
+    public int getEasiness(int card) {
+        checkCard(card);
+        return mEasiness[card];
+    }
+
+    /**
+     * Returns the interval in days after which the given card was last scheduled, 0 if it has
+     * never been remembered
+     */
+    public int getIntervalDays(int card) {
+        checkCard(card);
+        return mIntervalDays[card];
+    }
+
+    /**
+     * Returns how many times in a row the given card was remembered
+     */
+    public int getRepetitions(int card) {
+        checkCard(card);
+        return mRepetitions[card];
+    }
+
+    /**
+     * Returns when the given card is due
+     */
+    public long getDue(int card) {
+        checkCard(card);
+        return mDue[card];
+    }
+
+    /**
+     * Change the due time of a card and move it to its new place in the heap
+     */
+    private void reschedule(int card, long due) {
+        long previous = mDue[card];
+        mDue[card] = due;
+        if (due < previous) {
+            siftUp(mHeapIndex[card]);
+        } else {
+            siftDown(mHeapIndex[card]);
+        }
+    }
+
+    private void siftUp(int index) {
+        int card = mHeap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!comesBefore(card, mHeap[parent])) {
+                break;
+            }
+            place(mHeap[parent], index);
+            index = parent;
+        }
+        place(card, index);
+    }
+
+    private void siftDown(int index) {
+        int card = mHeap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= mSize) {
+                break;
+            }
+            if (child + 1 < mSize && comesBefore(mHeap[child + 1], mHeap[child])) {
+                child++;
+            }
+            if (!comesBefore(mHeap[child], card)) {
+                break;
+            }
+            place(mHeap[child], index);
+            index = child;
+        }
+        place(card, index);
+    }
+
+    private void place(int card, int index) {
+        mHeap[index] = card;
+        mHeapIndex[card] = index;
+    }
+
+    /**
+     * Returns true if card a is due before card b. Cards due at the same time come up in the
+     * order of their numbers.
+     */
+    private boolean comesBefore(int a, int b) {
+        return mDue[a] < mDue[b] || (mDue[a] == mDue[b] && a < b);
+    }
+
+    private void checkCard(int card) {
+        if (card < 0 || card >= mSize) {
+            throw new IndexOutOfBoundsException("Card " + card + " of " + mSize);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.android.miwok;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * {@link SearchIndex} finds words whose Miwok or default translation has a word starting with
+ * each of the words of a query, ignoring case, diacritics and apostrophes.
+ *
+ * Every word of every folded translation is stored once in a sorted array, so a query is a
+ * binary search for the range of entries starting with one of its words, followed by a check
+ * of the other query words against the few words in that range. The index is immutable once
+ * built and can be searched from any thread.
+ */
+public class SearchIndex {
+
+    /**
+     * Gives the index access to the translations of the words it covers.
+     */
+    public interface Source {
+
+        /** Returns the number of words */
+        int getWordCount();
+
+        /** Returns the default translation of the word at the given index */
+        String getDefaultTranslation(int wordIndex);
+
+        /** Returns the Miwok translation of the word at the given index */
+        String getMiwokTranslation(int wordIndex);
+    }
+
+    /* Folded words of every translation, sorted */
+    private final String[] mTokens;
+
+    /* Index of the word each of mTokens belongs to */
+    private final int[] mTokenWords;
+
+    /* Folded translations of each word, separated by a space */
+    private final String[] mFoldedTexts;
+
+    private SearchIndex(String[] tokens, int[] tokenWords, String[] foldedTexts) {
+        mTokens = tokens;
+        mTokenWords = tokenWords;
+        mFoldedTexts = foldedTexts;
+    }
+
+    /**
+     * Build the index over every word of the given source. This reads and folds every
+     * translation, so it should not run on the main thread.
+     */
+    public static SearchIndex build(Source source) {
+        int wordCount = source.getWordCount();
+        String[] foldedTexts = new String[wordCount];
+        int tokenCount = 0;
+        for (int word = 0; word < wordCount; word++) {
+            String folded = TextFolding.fold(source.getMiwokTranslation(word)) + ' '
+                    + TextFolding.fold(source.getDefaultTranslation(word));
+            foldedTexts[word] = folded.trim();
+            tokenCount += countTokens(foldedTexts[word]);
+        }
+
+        // Sort the tokens together with the word they belong to
+        final String[] unsortedTokens = new String[tokenCount];
+        int[] unsortedWords = new int[tokenCount];
+        int next = 0;
+        for (int word = 0; word < wordCount; word++) {
+            String text = foldedTexts[word];
+            int start = 0;
+            while (start < text.length()) {
+                int end = text.indexOf(' ', start);
+                if (end < 0) {
+                    end = text.length();
+                }
+                if (end > start) {
+                    unsortedTokens[next] = text.substring(start, end);
+                    unsortedWords[next] = word;
+                    next++;
+                }
+                start = end + 1;
+            }
+        }
+        Integer[] order = new Integer[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer first, Integer second) {
+                return unsortedTokens[first].compareTo(unsortedTokens[second]);
+            }
+        });
+
+        String[] tokens = new String[tokenCount];
+        int[] tokenWords = new int[tokenCount];
+        for (int i = 0; i < tokenCount; i++) {
+            tokens[i] = unsortedTokens[order[i]];
+            tokenWords[i] = unsortedWords[order[i]];
+        }
+        return new SearchIndex(tokens, tokenWords, foldedTexts);
+    }
+
+    /**
+     * Returns the number of words the index covers
+     */
+    public int getWordCount() {
+        return mFoldedTexts.length;
+    }
+
+    /**
+     * Find the words matching the given query.
+     *
+     * @param query is the text typed by the user
+     * @param maxResults is the maximum number of word indexes to return
+     * @return the indexes of the matching words, in ascending order. An empty query matches
+     * nothing.
+     */
+    public int[] search(CharSequence query, int maxResults) {
+        String[] queryTokens = splitTokens(TextFolding.fold(query));
+        if (queryTokens.length == 0) {
+            return new int[0];
+        }
+
+        // Walk the query word with the fewest candidates and check the others against them
+        int bestToken = 0;
+        int bestStart = 0;
+        int bestEnd = 0;
+        for (int i = 0; i < queryTokens.length; i++) {
+            int start = lowerBound(queryTokens[i]);
+            int end = prefixEnd(queryTokens[i], start);
+            if (i == 0 || end - start < bestEnd - bestStart) {
+                bestToken = i;
+                bestStart = start;
+                bestEnd = end;
+            }
+        }
+
+        BitSet matches = new BitSet(mFoldedTexts.length);
+        int matchCount = 0;
+        for (int i = bestStart; i < bestEnd && matchCount < maxResults; i++) {
+            int word = mTokenWords[i];
+            if (!matches.get(word) && matchesAll(mFoldedTexts[word], queryTokens, bestToken)) {
+                matches.set(word);
+                matchCount++;
+            }
+        }
+
+        int[] results = new int[matchCount];
+        int next = 0;
+        for (int word = matches.nextSetBit(0); word >= 0; word = matches.nextSetBit(word + 1)) {
+            results[next++] = word;
+        }
+        return results;
+    }
+
+    /**
+     * Returns the index of the first token that is not less than the given prefix
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = mTokens.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mTokens[middle].compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index after the last token starting with the given prefix
+     */
+    private int prefixEnd(String prefix, int start) {
+        int low = start;
+        int high = mTokens.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mTokens[middle].startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns true if the folded text has a word starting with each of the query tokens,
+     * skipping the one that is already known to match.
+     */
+    private static boolean matchesAll(String text, String[] queryTokens, int knownMatch) {
+        for (int i = 0; i < queryTokens.length; i++) {
+            if (i != knownMatch && !hasWordStartingWith(text, queryTokens[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordStartingWith(String text, String prefix) {
+        int index = text.indexOf(prefix);
+        while (index >= 0) {
+            if (index == 0 || text.charAt(index - 1) == ' ') {
+                return true;
+            }
+            index = text.indexOf(prefix, index + 1);
+        }
+        return false;
+    }
+
+    private static int countTokens(String text) {
+        return splitTokens(text).length;
+    }
+
+    private static String[] splitTokens(String foldedText) {
+        return foldedText.isEmpty() ? new String[0] : foldedText.split(" ");
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.android.miwok;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * {@link TextFolding} reduces text to the plain form used for searching, so that users can
+ * find Miwok words without typing characters like "ә", "ṭ" or "’".
+ */
+public final class TextFolding {
+
+    private TextFolding() {
+        // Only holds static helpers
+    }
+
+    /**
+     * Returns the folded form of the given text: lower case, without diacritics or apostrophes,
+     * with "ә" read as "e", and with every other character that is not a letter or a digit
+     * turned into a single space between words.
+     */
+    public static String fold(CharSequence text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK || isApostrophe(c)) {
+                // Diacritics and apostrophes disappear without splitting the word
+                continue;
+            }
+            if (c == '\u04D9' || c == '\u04D8' || c == '\u0259' || c == '\u018F') {
+                // Schwa, written with the Cyrillic or the Latin letter
+                c = 'e';
+            }
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = folded.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                folded.append(' ');
+                pendingSpace = false;
+            }
+            folded.append(c);
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '\u2019' || c == '\u2018' || c == '\u02BC' || c == '`';
+    }
+}
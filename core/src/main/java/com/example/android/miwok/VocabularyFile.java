@@ -0,0 +1,288 @@
+package com.example.android.miwok;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * {@link VocabularyFile} reads the categories and the words of a compiled vocabulary, as
+ * written by vocabulary.gradle at build time or by {@link VocabularyWriter}.
+ *
+ * Nothing is decoded up front: strings are only read from the buffer when they are asked for,
+ * so the size of the vocabulary costs neither load time nor heap. Images, audio, titles and
+ * colors are stored as resource names, which this class does not resolve.
+ *
+ * The header is checked when the vocabulary is opened. A vocabulary that does not come with the
+ * app, such as the one of a content pack, should also be {@link #check() checked} before it is
+ * read, so that a malformed one is rejected rather than failing when a word is read.
+ */
+public class VocabularyFile implements SearchIndex.Source {
+
+    /* "MIWK" */
+    static final int MAGIC = 0x4D49574B;
+
+    static final int VERSION = 3;
+
+    static final int HEADER_SIZE = 20;
+    static final int CATEGORY_ENTRY_SIZE = 20;
+    static final int WORD_ENTRY_SIZE = 16;
+
+    /** Offset meaning that there is no string, such as a word without an image */
+    public static final int NO_STRING = -1;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /* The whole vocabulary, only ever read through absolute gets */
+    private final ByteBuffer mBuffer;
+
+    private final int mCategoryCount;
+
+    private final int mWordCount;
+
+    private final int mContentChecksum;
+
+    /* Where the word table and the string table start in mBuffer */
+    private final int mWordTableStart;
+    private final int mStringTableStart;
+
+    /**
+     * Create a new {@link VocabularyFile} object.
+     *
+     * @param buffer holds the compiled vocabulary, it is not copied
+     */
+    public VocabularyFile(ByteBuffer buffer) {
+        mBuffer = buffer;
+
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " vocabulary");
+        }
+        mCategoryCount = buffer.getInt(8);
+        mWordCount = buffer.getInt(12);
+        mContentChecksum = buffer.getInt(16);
+        if (mCategoryCount < 0 || mWordCount < 0 || HEADER_SIZE
+                + (long) mCategoryCount * CATEGORY_ENTRY_SIZE
+                + (long) mWordCount * WORD_ENTRY_SIZE > buffer.capacity()) {
+            throw new IllegalArgumentException("Vocabulary is too short for its tables");
+        }
+        mWordTableStart = HEADER_SIZE + mCategoryCount * CATEGORY_ENTRY_SIZE;
+        mStringTableStart = mWordTableStart + mWordCount * WORD_ENTRY_SIZE;
+    }
+
+    /**
+     * Check that the words of every category are in the word table, and that every string the
+     * categories and words refer to is in the string table, so that nothing read from the
+     * vocabulary afterwards can fall outside of the buffer. This reads the whole vocabulary,
+     * but decodes no string.
+     *
+     * @throws IllegalArgumentException if the vocabulary is malformed
+     */
+    public void check() {
+        for (int category = 0; category < mCategoryCount; category++) {
+            int entry = categoryEntry(category);
+            checkString(mBuffer.getInt(entry), false);
+            checkString(getCategoryTitleKey(category), false);
+            checkString(getCategoryColorKey(category), true);
+            int first = getFirstWord(category);
+            int size = getCategorySize(category);
+            if (first < 0 || size < 0 || (long) first + size > mWordCount) {
+                throw new IllegalArgumentException("Category " + category
+                        + " has words outside of the word table");
+            }
+        }
+        for (int word = 0; word < mWordCount; word++) {
+            int entry = wordEntry(word);
+            checkString(mBuffer.getInt(entry), false);
+            checkString(mBuffer.getInt(entry + 4), false);
+            checkString(getImageKey(word), true);
+            checkString(getAudioKey(word), false);
+        }
+    }
+
+    /**
+     * Returns the CRC32 of everything the vocabulary holds after its header, which changes
+     * whenever a category or a word does
+     */
+    public int getContentChecksum() {
+        return mContentChecksum;
+    }
+
+    /**
+     * Returns the number of categories in the vocabulary
+     */
+    public int getCategoryCount() {
+        return mCategoryCount;
+    }
+
+    /**
+     * Returns the name of the category at the given index
+     */
+    public String getCategoryName(int categoryIndex) {
+        return readString(mBuffer.getInt(categoryEntry(categoryIndex)));
+    }
+
+    /**
+     * Returns the string resource name of the title of the category at the given index
+     */
+    public String getCategoryTitleName(int categoryIndex) {
+        return readString(getCategoryTitleKey(categoryIndex));
+    }
+
+    /**
+     * Returns the color resource name of the list of the category at the given index
+     */
+    public String getCategoryColorName(int categoryIndex) {
+        return readString(getCategoryColorKey(categoryIndex));
+    }
+
+    /**
+     * Returns the index of the category with the given name, or -1 if there is none
+     */
+    public int findCategory(String name) {
+        for (int i = 0; i < mCategoryCount; i++) {
+            if (name.equals(getCategoryName(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the total number of words in the vocabulary
+     */
+    @Override
+    public int getWordCount() {
+        return mWordCount;
+    }
+
+    /**
+     * Returns the index in the whole vocabulary of the first word of the given category
+     */
+    public int getFirstWord(int categoryIndex) {
+        return mBuffer.getInt(categoryEntry(categoryIndex) + 12);
+    }
+
+    /**
+     * Returns the number of words in the given category
+     */
+    public int getCategorySize(int categoryIndex) {
+        return mBuffer.getInt(categoryEntry(categoryIndex) + 16);
+    }
+
+    /**
+     * Returns the default translation of the word at the given index
+     */
+    @Override
+    public String getDefaultTranslation(int wordIndex) {
+        return readString(mBuffer.getInt(wordEntry(wordIndex)));
+    }
+
+    /**
+     * Returns the Miwok translation of the word at the given index
+     */
+    @Override
+    public String getMiwokTranslation(int wordIndex) {
+        return readString(mBuffer.getInt(wordEntry(wordIndex) + 4));
+    }
+
+    /**
+     * Returns the drawable resource name of the word at the given index, or null if it has no
+     * image
+     */
+    public String getImageName(int wordIndex) {
+        int imageName = getImageKey(wordIndex);
+        return imageName == NO_STRING ? null : readString(imageName);
+    }
+
+    /**
+     * Returns the name of the pronunciation clip of the word at the given index
+     */
+    public String getAudioName(int wordIndex) {
+        return readString(getAudioKey(wordIndex));
+    }
+
+    /*
+     * The keys below are the offsets of resource names in the string table. Equal names share
+     * their key, so callers can remember what a name resolves to without decoding it.
+     */
+
+    /**
+     * Returns the key of the title name of the given category
+     */
+    public int getCategoryTitleKey(int categoryIndex) {
+        return mBuffer.getInt(categoryEntry(categoryIndex) + 4);
+    }
+
+    /**
+     * Returns the key of the color name of the given category
+     */
+    public int getCategoryColorKey(int categoryIndex) {
+        return mBuffer.getInt(categoryEntry(categoryIndex) + 8);
+    }
+
+    /**
+     * Returns the key of the image name of the given word, or {@link #NO_STRING}
+     */
+    public int getImageKey(int wordIndex) {
+        return mBuffer.getInt(wordEntry(wordIndex) + 8);
+    }
+
+    /**
+     * Returns the key of the audio name of the given word
+     */
+    public int getAudioKey(int wordIndex) {
+        return mBuffer.getInt(wordEntry(wordIndex) + 12);
+    }
+
+    /**
+     * Decode the name with the given key
+     */
+    public String getName(int key) {
+        return readString(key);
+    }
+
+    private int wordEntry(int wordIndex) {
+        if (wordIndex < 0 || wordIndex >= mWordCount) {
+            throw new IndexOutOfBoundsException("Word " + wordIndex + " of " + mWordCount);
+        }
+        return mWordTableStart + wordIndex * WORD_ENTRY_SIZE;
+    }
+
+    private int categoryEntry(int categoryIndex) {
+        if (categoryIndex < 0 || categoryIndex >= mCategoryCount) {
+            throw new IndexOutOfBoundsException(
+                    "Category " + categoryIndex + " of " + mCategoryCount);
+        }
+        return HEADER_SIZE + categoryIndex * CATEGORY_ENTRY_SIZE;
+    }
+
+    /**
+     * Check that the string at the given offset of the string table is inside the buffer
+     *
+     * @param optional is true if the offset may be {@link #NO_STRING}
+     */
+    private void checkString(int offset, boolean optional) {
+        if (offset == NO_STRING && optional) {
+            return;
+        }
+        long position = (long) mStringTableStart + offset;
+        if (offset < 0 || position + 2 > mBuffer.capacity()
+                || position + 2 + (mBuffer.getShort((int) position) & 0xFFFF)
+                > mBuffer.capacity()) {
+            throw new IllegalArgumentException("Vocabulary string " + offset
+                    + " is outside of the string table");
+        }
+    }
+
+    /**
+     * Decode the string at the given offset of the string table
+     */
+    private String readString(int offset) {
+        int position = mStringTableStart + offset;
+        int length = mBuffer.getShort(position) & 0xFFFF;
+        byte[] utf8 = new byte[length];
+        ByteBuffer source = mBuffer.duplicate();
+        source.position(position + 2);
+        source.get(utf8);
+        return new String(utf8, UTF_8);
+    }
+}
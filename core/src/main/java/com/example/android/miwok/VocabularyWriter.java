@@ -0,0 +1,165 @@
+package com.example.android.miwok;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * {@link VocabularyWriter} compiles categories and words into the format read by
+ * {@link VocabularyFile}. It produces the same bytes as the compileVocabulary task of
+ * vocabulary.gradle, which is where the format is described.
+ */
+public class VocabularyWriter {
+
+    /* Categories by name, in the order they were added, each with the words added to it */
+    private final LinkedHashMap<String, Category> mCategories = new LinkedHashMap<>();
+
+    private int mWordCount;
+
+    /**
+     * Add a category. Categories are written in the order they are added.
+     *
+     * @param name is the name of the category
+     * @param titleName is the string resource name of its title
+     * @param colorName is the color resource name of its list
+     */
+    public void addCategory(String name, String titleName, String colorName) {
+        if (mCategories.containsKey(name)) {
+            throw new IllegalArgumentException("Category " + name + " was already added");
+        }
+        mCategories.put(name, new Category(titleName, colorName));
+    }
+
+    /**
+     * Add a word at the end of a category that was already added.
+     *
+     * @param category is the name of the category
+     * @param defaultTranslation is the word in the default language
+     * @param miwokTranslation is the word in Miwok
+     * @param imageName is the drawable resource name of its image, or null if it has none
+     * @param audioName is the name of its pronunciation clip
+     */
+    public void addWord(String category, String defaultTranslation, String miwokTranslation,
+                        String imageName, String audioName) {
+        Category entry = mCategories.get(category);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown category " + category);
+        }
+        entry.mWords.add(new String[]{defaultTranslation, miwokTranslation, imageName, audioName});
+        mWordCount++;
+    }
+
+    /**
+     * Returns the compiled vocabulary
+     */
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            writeTo(bytes);
+        } catch (IOException e) {
+            // A ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Write the compiled vocabulary to the given stream.
+     */
+    public void writeTo(OutputStream stream) throws IOException {
+        StringTable strings = new StringTable();
+
+        ByteArrayOutputStream categoryTable = new ByteArrayOutputStream(
+                mCategories.size() * VocabularyFile.CATEGORY_ENTRY_SIZE);
+        DataOutputStream categoryOut = new DataOutputStream(categoryTable);
+        ByteArrayOutputStream wordTable = new ByteArrayOutputStream(
+                mWordCount * VocabularyFile.WORD_ENTRY_SIZE);
+        DataOutputStream wordOut = new DataOutputStream(wordTable);
+
+        int firstWord = 0;
+        for (String name : mCategories.keySet()) {
+            Category category = mCategories.get(name);
+            categoryOut.writeInt(strings.intern(name));
+            categoryOut.writeInt(strings.intern(category.mTitleName));
+            categoryOut.writeInt(strings.intern(category.mColorName));
+            categoryOut.writeInt(firstWord);
+            categoryOut.writeInt(category.mWords.size());
+            for (String[] word : category.mWords) {
+                for (String column : word) {
+                    wordOut.writeInt(strings.intern(column));
+                }
+            }
+            firstWord += category.mWords.size();
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(categoryTable.toByteArray());
+        checksum.update(wordTable.toByteArray());
+        checksum.update(strings.mBytes.toByteArray());
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(VocabularyFile.MAGIC);
+        out.writeInt(VocabularyFile.VERSION);
+        out.writeInt(mCategories.size());
+        out.writeInt(mWordCount);
+        out.writeInt((int) checksum.getValue());
+        categoryTable.writeTo(out);
+        wordTable.writeTo(out);
+        strings.mBytes.writeTo(out);
+        out.flush();
+    }
+
+    private static class Category {
+
+        private final String mTitleName;
+
+        private final String mColorName;
+
+        /* Default translation, Miwok translation, image name and audio name of each word */
+        private final List<String[]> mWords = new ArrayList<>();
+
+        Category(String titleName, String colorName) {
+            mTitleName = titleName;
+            mColorName = colorName;
+        }
+    }
+
+    /**
+     * The string table, where every distinct string is stored once.
+     */
+    private static class StringTable {
+
+        private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream mOut = new DataOutputStream(mBytes);
+
+        private final HashMap<String, Integer> mOffsets = new HashMap<>();
+
+        /**
+         * Returns the offset of the given string, adding it to the table if needed
+         */
+        int intern(String value) throws IOException {
+            if (value == null) {
+                return VocabularyFile.NO_STRING;
+            }
+            Integer offset = mOffsets.get(value);
+            if (offset == null) {
+                byte[] utf8 = value.getBytes(VocabularyFile.UTF_8);
+                if (utf8.length > 0xFFFF) {
+                    throw new IllegalArgumentException("Vocabulary string is too long: " + value);
+                }
+                offset = mOut.size();
+                mOut.writeShort(utf8.length);
+                mOut.write(utf8);
+                mOffsets.put(value, offset);
+            }
+            return offset;
+        }
+    }
+}
@@ -20,8 +20,8 @@ public class Word {
     //constant value that represents no image was provided for this word
     private static final int NO_IMAGE_PROVIDED = -1;
 
-    // Audio resource ID for the word
-    private int mAudioResourceId;
+    // ID of the pronunciation clip of the word
+    private int mAudioClipId;
 
 
     /**
@@ -31,12 +31,12 @@ public class Word {
      *                           such as english
      * @param miwokTranslation represents a word in the Miwok language
      *
-     * @param miwokAudio is the raw resource for the miwok word pronunciation audio file
+     * @param miwokAudio is the ID of the clip of the miwok word pronunciation
      */
     public Word(String defaultTranslation, String miwokTranslation, int miwokAudio) {
         mMiwokTranslation = miwokTranslation;
         mDefaultTranslation = defaultTranslation;
-        mAudioResourceId = miwokAudio;
+        mAudioClipId = miwokAudio;
     }
 
     /**
@@ -48,14 +48,14 @@ public class Word {
      *
      * @param imageResourceId is the drawable resource id for the image associated with the word
      *
-     * @param miwokAudio is the raw resource for the miwok word pronunciation audio file
+     * @param miwokAudio is the ID of the clip of the miwok word pronunciation
      */
     public Word(String defaultTranslation, String miwokTranslation, int imageResourceId,
                 int miwokAudio) {
         mMiwokTranslation = miwokTranslation;
         mDefaultTranslation = defaultTranslation;
         mImageResourceId = imageResourceId;
-        mAudioResourceId = miwokAudio;
+        mAudioClipId = miwokAudio;
 
     }
 
@@ -85,9 +85,9 @@ public class Word {
 
 
     /**
-     * Returns audio resource
+     * Returns the ID of the pronunciation clip
      */
-    public int getAudioResourceId() { return mAudioResourceId; }
+    public int getAudioClipId() { return mAudioClipId; }
 
 
     /**
@@ -99,7 +99,7 @@ public class Word {
                 "mDefaultTranslation='" + mDefaultTranslation + '\'' +
                 ", mMiwokTranslation='" + mMiwokTranslation + '\'' +
                 ", mImageResourceId=" + mImageResourceId +
-                ", mAudioResourceId=" + mAudioResourceId +
+                ", mAudioClipId=" + mAudioClipId +
                 '}';
     }
 }
@@ -0,0 +1,234 @@
+package com.example.android.miwok;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * {@link WordTable} stores words column by column in a handful of primitive arrays, instead of
+ * as one {@link Word} object with two strings per word: the texts of every word share a single
+ * UTF-8 buffer and the image, audio and category of every word are kept in int arrays.
+ *
+ * However many words it holds, a table is only a few objects, so large vocabularies cost
+ * neither object headers nor garbage collection work. A row is only decoded into a {@link Word}
+ * when {@link #get(int)} asks for it, and the table keeps no words. A list that binds the same
+ * rows again and again keeps the words it decoded for the rows it currently holds, like the
+ * pages of the app's paged word lists.
+ *
+ * Words are appended with {@link #addWord(int, String, String, int, int)}. A table is not
+ * thread safe, it must not be read while words are being added to it.
+ */
+public class WordTable extends AbstractList<Word> implements RandomAccess {
+
+    /** Image resource ID of a word that has no image */
+    public static final int NO_IMAGE = -1;
+
+    /** Category index of a word that belongs to no category */
+    public static final int NO_CATEGORY = -1;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /* Names of the categories, a row refers to its category by index in this array */
+    private String[] mCategoryNames = new String[1];
+    private int mCategoryCount;
+
+    /* UTF-8 texts of every row, the default translation followed by the Miwok translation */
+    private byte[] mText;
+    private int mTextLength;
+
+    /*
+     * Where the texts of each row start in mText: the default translation of row r starts at
+     * mTextStarts[2 * r] and its Miwok translation at mTextStarts[2 * r + 1]. Each text ends
+     * where the next one starts, the last one at mTextLength.
+     */
+    private int[] mTextStarts;
+
+    private int[] mImageResourceIds;
+
+    private int[] mAudioClipIds;
+
+    private int[] mCategories;
+
+    private int mSize;
+
+    /**
+     * Create an empty {@link WordTable}.
+     */
+    public WordTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty {@link WordTable} with room for the given number of words.
+     */
+    public WordTable(int capacity) {
+        capacity = Math.max(capacity, 1);
+        mText = new byte[capacity * 16];
+        mTextStarts = new int[capacity * 2];
+        mImageResourceIds = new int[capacity];
+        mAudioClipIds = new int[capacity];
+        mCategories = new int[capacity];
+    }
+
+    /**
+     * Add a category and return its index, or the index it already has.
+     */
+    public int addCategory(String name) {
+        int category = findCategory(name);
+        if (category >= 0) {
+            return category;
+        }
+        if (mCategoryCount == mCategoryNames.length) {
+            mCategoryNames = Arrays.copyOf(mCategoryNames, mCategoryCount * 2);
+        }
+        mCategoryNames[mCategoryCount] = name;
+        return mCategoryCount++;
+    }
+
+    /**
+     * Returns the index of the category with the given name, or -1 if there is none
+     */
+    public int findCategory(String name) {
+        for (int i = 0; i < mCategoryCount; i++) {
+            if (mCategoryNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the name of the category with the given index
+     */
+    public String getCategoryName(int category) {
+        if (category < 0 || category >= mCategoryCount) {
+            throw new IndexOutOfBoundsException("Category " + category + " of " + mCategoryCount);
+        }
+        return mCategoryNames[category];
+    }
+
+    /**
+     * Append a word to the table.
+     *
+     * @param category is the index of the category of the word, as returned by
+     *                 {@link #addCategory(String)}, or {@link #NO_CATEGORY}
+     * @param defaultTranslation is the word in the default language
+     * @param miwokTranslation is the word in Miwok
+     * @param imageResourceId is the drawable resource ID of its image, or {@link #NO_IMAGE}
+     * @param audioClipId is the ID of its pronunciation clip
+     * @return the row of the word
+     */
+    public int addWord(int category, String defaultTranslation, String miwokTranslation,
+                       int imageResourceId, int audioClipId) {
+        if (category != NO_CATEGORY && (category < 0 || category >= mCategoryCount)) {
+            throw new IllegalArgumentException("Unknown category " + category);
+        }
+        if (mSize == mCategories.length) {
+            int capacity = Math.max(mSize * 2, DEFAULT_CAPACITY);
+            mTextStarts = Arrays.copyOf(mTextStarts, capacity * 2);
+            mImageResourceIds = Arrays.copyOf(mImageResourceIds, capacity);
+            mAudioClipIds = Arrays.copyOf(mAudioClipIds, capacity);
+            mCategories = Arrays.copyOf(mCategories, capacity);
+        }
+
+        int row = mSize++;
+        mTextStarts[2 * row] = appendText(defaultTranslation);
+        mTextStarts[2 * row + 1] = appendText(miwokTranslation);
+        mImageResourceIds[row] = imageResourceId;
+        mAudioClipIds[row] = audioClipId;
+        mCategories[row] = category;
+        return row;
+    }
+
+    /**
+     * Let go of the room that was reserved for words that were never added.
+     */
+    public void trimToSize() {
+        mText = Arrays.copyOf(mText, mTextLength);
+        mTextStarts = Arrays.copyOf(mTextStarts, mSize * 2);
+        mImageResourceIds = Arrays.copyOf(mImageResourceIds, mSize);
+        mAudioClipIds = Arrays.copyOf(mAudioClipIds, mSize);
+        mCategories = Arrays.copyOf(mCategories, mSize);
+    }
+
+    /**
+     * Returns a new {@link Word} decoded from the given row
+     */
+    @Override
+    public Word get(int row) {
+        checkRow(row);
+        return new Word(text(2 * row), text(2 * row + 1), mImageResourceIds[row],
+                mAudioClipIds[row]);
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the default translation of the given row
+     */
+    public String getDefaultTranslation(int row) {
+        checkRow(row);
+        return text(2 * row);
+    }
+
+    /**
+     * Returns the Miwok translation of the given row
+     */
+    public String getMiwokTranslation(int row) {
+        checkRow(row);
+        return text(2 * row + 1);
+    }
+
+    /**
+     * Returns the drawable resource ID of the image of the given row, or {@link #NO_IMAGE}
+     */
+    public int getImageResourceId(int row) {
+        checkRow(row);
+        return mImageResourceIds[row];
+    }
+
+    /**
+     * Returns the ID of the pronunciation clip of the given row
+     */
+    public int getAudioClipId(int row) {
+        checkRow(row);
+        return mAudioClipIds[row];
+    }
+
+    /**
+     * Returns the index of the category of the given row, or {@link #NO_CATEGORY}
+     */
+    public int getCategory(int row) {
+        checkRow(row);
+        return mCategories[row];
+    }
+
+    private int appendText(String text) {
+        byte[] utf8 = text.getBytes(VocabularyFile.UTF_8);
+        int start = mTextLength;
+        if (start + utf8.length > mText.length) {
+            mText = Arrays.copyOf(mText, Math.max(mText.length * 2, start + utf8.length));
+        }
+        System.arraycopy(utf8, 0, mText, start, utf8.length);
+        mTextLength += utf8.length;
+        return start;
+    }
+
+    /**
+     * Decode the text with the given index in mTextStarts
+     */
+    private String text(int index) {
+        int start = mTextStarts[index];
+        int end = index + 1 < mSize * 2 ? mTextStarts[index + 1] : mTextLength;
+        return new String(mText, start, end - start, VocabularyFile.UTF_8);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= mSize) {
+            throw new IndexOutOfBoundsException("Word " + row + " of " + mSize);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.android.miwok;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ContentPackFileTest {
+
+    private static final byte[] IMAGE = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+
+    private static final byte[] CLIP = {'O', 'g', 'g', 'S', 4, 5, 6, 7, 8};
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    /* A valid pack, holding a vocabulary, an image and a clip in that order */
+    private byte[] mPack;
+
+    @Before
+    public void setUp() throws IOException {
+        VocabularyWriter vocabulary = new VocabularyWriter();
+        vocabulary.addCategory("animals", "Animals", "#336699");
+        vocabulary.addWord("animals", "bear", "kolooli", "bear", "bear");
+
+        ContentPackWriter writer = new ContentPackWriter();
+        writer.setVocabulary(vocabulary.toByteArray());
+        writer.addImage("bear", write("bear.png", IMAGE));
+        writer.addClip("bear", write("bear.ogg", CLIP));
+        ByteArrayOutputStream pack = new ByteArrayOutputStream();
+        writer.writeTo(pack);
+        mPack = pack.toByteArray();
+    }
+
+    @Test
+    public void copiesValidPack() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(mPack.length, ContentPackFile.copy(new ByteArrayInputStream(mPack), out));
+        assertArrayEquals(mPack, out.toByteArray());
+    }
+
+    @Test
+    public void readsEntriesInPlace() throws IOException {
+        ContentPackFile file = new ContentPackFile(ByteBuffer.wrap(mPack));
+        assertEquals(3, file.getEntryCount());
+
+        int image = file.findEntry(ContentPackFile.TYPE_IMAGE, "bear");
+        int clip = file.findEntry(ContentPackFile.TYPE_AUDIO, "bear");
+        assertEquals(CLIP.length, file.getLength(clip));
+        assertEquals(file.getOffset(image) + IMAGE.length, file.getOffset(clip));
+        assertArrayEquals(IMAGE, read(file.openEntry(image)));
+        assertArrayEquals(CLIP, Arrays.copyOfRange(mPack, (int) file.getOffset(clip),
+                mPack.length));
+
+        VocabularyFile vocabulary = file.getVocabulary();
+        assertEquals("kolooli", vocabulary.getMiwokTranslation(0));
+        assertEquals("#336699", vocabulary.getCategoryColorName(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void copyRejectsTruncatedPack() throws IOException {
+        copy(Arrays.copyOf(mPack, mPack.length - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void copyRejectsTruncatedHeader() throws IOException {
+        copy(Arrays.copyOf(mPack, ContentPackFile.HEADER_SIZE - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void openRejectsTruncatedPack() throws IOException {
+        new ContentPackFile(ByteBuffer.wrap(Arrays.copyOf(mPack, mPack.length - 1)));
+    }
+
+    @Test(expected = IOException.class)
+    public void copyRejectsCorruptEntry() throws IOException {
+        mPack[mPack.length - 1] ^= 1;
+        copy(mPack);
+    }
+
+    @Test(expected = IOException.class)
+    public void copyRejectsCorruptIndex() throws IOException {
+        mPack[ContentPackFile.HEADER_SIZE] ^= 1;
+        copy(mPack);
+    }
+
+    @Test(expected = IOException.class)
+    public void openRejectsCorruptIndex() throws IOException {
+        mPack[ContentPackFile.HEADER_SIZE] ^= 1;
+        new ContentPackFile(ByteBuffer.wrap(mPack));
+    }
+
+    @Test(expected = IOException.class)
+    public void copyRejectsTrailingBytes() throws IOException {
+        copy(Arrays.copyOf(mPack, mPack.length + 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void copyRejectsBadMagic() throws IOException {
+        mPack[0] ^= 1;
+        copy(mPack);
+    }
+
+    @Test(expected = IOException.class)
+    public void openRejectsOtherVersion() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(mPack);
+        buffer.putInt(4, ContentPackFile.VERSION + 1);
+        new ContentPackFile(buffer);
+    }
+
+    @Test(expected = IOException.class)
+    public void copyRejectsNameOutsideIndex() throws IOException {
+        ByteBuffer.wrap(mPack).putInt(ContentPackFile.HEADER_SIZE + 4, 1 << 20);
+        updateChecksums();
+        copy(mPack);
+    }
+
+    @Test(expected = IOException.class)
+    public void openRejectsNameOutsideIndex() throws IOException {
+        ByteBuffer.wrap(mPack).putInt(ContentPackFile.HEADER_SIZE + 4, -3);
+        updateChecksums();
+        new ContentPackFile(ByteBuffer.wrap(mPack));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsVocabularyOutsideItself() throws IOException {
+        // The audio key of the only word, after the header and the only category
+        ByteBuffer pack = ByteBuffer.wrap(mPack);
+        int vocabulary = (int) pack.getLong(ContentPackFile.HEADER_SIZE + 8);
+        pack.putInt(vocabulary + VocabularyFile.HEADER_SIZE
+                + VocabularyFile.CATEGORY_ENTRY_SIZE + 12, 1 << 20);
+        updateChecksums();
+
+        // The checksums hold, only reading the vocabulary tells
+        copy(mPack);
+        new ContentPackFile(ByteBuffer.wrap(mPack)).getVocabulary();
+    }
+
+    /**
+     * Compute the checksums of the entries and of the index of mPack again, after it was
+     * tampered with
+     */
+    private void updateChecksums() {
+        ByteBuffer pack = ByteBuffer.wrap(mPack);
+        int entryCount = pack.getInt(8);
+        CRC32 crc = new CRC32();
+        for (int entry = 0; entry < entryCount; entry++) {
+            int start = ContentPackFile.HEADER_SIZE + entry * ContentPackFile.ENTRY_SIZE;
+            crc.reset();
+            crc.update(mPack, (int) pack.getLong(start + 8), pack.getInt(start + 16));
+            pack.putInt(start + 20, (int) crc.getValue());
+        }
+        crc.reset();
+        crc.update(mPack, ContentPackFile.HEADER_SIZE, pack.getInt(12));
+        pack.putInt(16, (int) crc.getValue());
+    }
+
+    private static void copy(byte[] pack) throws IOException {
+        ContentPackFile.copy(new ByteArrayInputStream(pack), new ByteArrayOutputStream());
+    }
+
+    private File write(String name, byte[] bytes) throws IOException {
+        File file = mFolder.newFile(name);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0) {
+            bytes.write(b);
+        }
+        return bytes.toByteArray();
+    }
+}
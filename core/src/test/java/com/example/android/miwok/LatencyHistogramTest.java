@@ -0,0 +1,92 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReadsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMicros());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(50));
+    }
+
+    @Test
+    public void bucketEdgesArePowersOfTwo() {
+        // 1023us and 1024us fall on either side of a bucket edge
+        assertEquals(1024, percentileOfTwo(1023, 5000, 50));
+        assertEquals(2048, percentileOfTwo(1024, 5000, 50));
+        assertEquals(1, percentileOfTwo(0, 5000, 50));
+        assertEquals(2, percentileOfTwo(1, 5000, 50));
+        assertEquals(4, percentileOfTwo(2, 5000, 50));
+        assertEquals(4, percentileOfTwo(3, 5000, 50));
+    }
+
+    @Test
+    public void percentileNeverExceedsMax() {
+        assertEquals(1500, percentileOfTwo(1500, 1500, 100));
+        assertEquals(0, percentileOfTwo(0, 0, 50));
+    }
+
+    @Test
+    public void readsPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(5000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(150000);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(8192, histogram.getPercentileMicros(50));
+        assertEquals(8192, histogram.getPercentileMicros(90));
+        assertEquals(150000, histogram.getPercentileMicros(91));
+        assertEquals(150000, histogram.getPercentileMicros(99));
+        assertEquals(150000, histogram.getMaxMicros());
+        assertEquals(19500, histogram.getMeanMicros());
+        // The lowest percentile is the first bucket that holds anything
+        assertEquals(8192, histogram.getPercentileMicros(0));
+    }
+
+    @Test
+    public void longestDurationsShareLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(60L * 1000 * 1000);
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(1L << 25, histogram.getPercentileMicros(50));
+        assertEquals(Long.MAX_VALUE / 2, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void negativeDurationCountsAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(5000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(99));
+    }
+
+    /**
+     * Returns the given percentile of a histogram of the two given durations
+     */
+    private static long percentileOfTwo(long first, long second, double percentile) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(first);
+        histogram.record(second);
+        return histogram.getPercentileMicros(percentile);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlayBufferTest {
+
+    @Test
+    public void countsPlaysWaiting() {
+        PlayBuffer buffer = new PlayBuffer(4);
+        assertEquals(1, buffer.record(1, "numbers", 100));
+        assertEquals(2, buffer.record(2, "numbers", 200));
+        assertEquals(2, buffer.size());
+    }
+
+    @Test
+    public void mergesRepeatedPlaysInFirstPlayOrder() {
+        PlayBuffer buffer = new PlayBuffer(8);
+        buffer.record(2, "numbers", 100);
+        buffer.record(1, "numbers", 200);
+        buffer.record(2, "numbers", 300);
+        buffer.record(2, "colors", 400);
+        buffer.record(2, "numbers", 500);
+
+        List<PlayBuffer.Count> counts = buffer.drain();
+        assertEquals(3, counts.size());
+        assertCount(counts.get(0), "numbers", 2, 100, 500, 3);
+        assertCount(counts.get(1), "numbers", 1, 200, 200, 1);
+        assertCount(counts.get(2), "colors", 2, 400, 400, 1);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void drainEmptiesBuffer() {
+        PlayBuffer buffer = new PlayBuffer(4);
+        buffer.record(1, "numbers", 100);
+        buffer.drain();
+        assertTrue(buffer.drain().isEmpty());
+
+        // The next batch starts where the last one ended in the ring
+        buffer.record(2, "colors", 200);
+        buffer.record(3, "colors", 300);
+        buffer.record(4, "colors", 400);
+        buffer.record(5, "colors", 500);
+        List<PlayBuffer.Count> counts = buffer.drain();
+        assertEquals(4, counts.size());
+        assertCount(counts.get(0), "colors", 2, 200, 200, 1);
+        assertCount(counts.get(3), "colors", 5, 500, 500, 1);
+        assertEquals(0, buffer.takeDropped());
+    }
+
+    @Test
+    public void overflowDropsOldestPlays() {
+        PlayBuffer buffer = new PlayBuffer(3);
+        for (int clip = 1; clip <= 5; clip++) {
+            assertEquals(Math.min(clip, 3), buffer.record(clip, "numbers", clip * 100));
+        }
+        assertEquals(2, buffer.takeDropped());
+        assertEquals(0, buffer.takeDropped());
+
+        List<PlayBuffer.Count> counts = buffer.drain();
+        assertEquals(3, counts.size());
+        assertCount(counts.get(0), "numbers", 3, 300, 300, 1);
+        assertCount(counts.get(1), "numbers", 4, 400, 400, 1);
+        assertCount(counts.get(2), "numbers", 5, 500, 500, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCapacity() {
+        new PlayBuffer(0);
+    }
+
+    private static void assertCount(PlayBuffer.Count count, String category, int clipId,
+                                    long firstTime, long lastTime, int plays) {
+        assertEquals(category, count.getCategory());
+        assertEquals(clipId, count.getClipId());
+        assertEquals(firstTime, count.getFirstTime());
+        assertEquals(lastTime, count.getLastTime());
+        assertEquals(plays, count.getPlays());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReviewSchedulerTest {
+
+    private static final long TEN_MINUTES_MS = 10 * 60 * 1000L;
+
+    @Test
+    public void newCardsComeUpInOrder() {
+        ReviewScheduler scheduler = new ReviewScheduler(3);
+        assertEquals(0, scheduler.peekNext());
+        assertEquals(0, scheduler.nextDue(0));
+        assertEquals(ReviewScheduler.INITIAL_EASINESS, scheduler.getEasiness(2));
+    }
+
+    @Test
+    public void emptyDeckHasNoNextCard() {
+        ReviewScheduler scheduler = new ReviewScheduler(0);
+        assertEquals(-1, scheduler.peekNext());
+        assertEquals(-1, scheduler.nextDue(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void intervalsGrowWithEasiness() {
+        ReviewScheduler scheduler = new ReviewScheduler(1);
+
+        scheduler.answer(0, ReviewScheduler.GRADE_PERFECT, 0);
+        assertEquals(1, scheduler.getIntervalDays(0));
+        assertEquals(260, scheduler.getEasiness(0));
+        assertEquals(ReviewScheduler.DAY_MS, scheduler.getDue(0));
+
+        long now = scheduler.getDue(0);
+        scheduler.answer(0, ReviewScheduler.GRADE_PERFECT, now);
+        assertEquals(6, scheduler.getIntervalDays(0));
+        assertEquals(270, scheduler.getEasiness(0));
+        assertEquals(now + 6 * ReviewScheduler.DAY_MS, scheduler.getDue(0));
+
+        // 6 days at an easiness of 2.8, rounded
+        now = scheduler.getDue(0);
+        scheduler.answer(0, ReviewScheduler.GRADE_PERFECT, now);
+        assertEquals(280, scheduler.getEasiness(0));
+        assertEquals(17, scheduler.getIntervalDays(0));
+        assertEquals(3, scheduler.getRepetitions(0));
+        assertEquals(now + 17 * ReviewScheduler.DAY_MS, scheduler.getDue(0));
+    }
+
+    @Test
+    public void easinessFollowsGrade() {
+        ReviewScheduler scheduler = new ReviewScheduler(3);
+        scheduler.answer(0, 4, 0);
+        scheduler.answer(1, ReviewScheduler.GRADE_PASS, 0);
+        scheduler.answer(2, ReviewScheduler.GRADE_BLACKOUT, 0);
+        assertEquals(250, scheduler.getEasiness(0));
+        assertEquals(236, scheduler.getEasiness(1));
+        assertEquals(170, scheduler.getEasiness(2));
+    }
+
+    @Test
+    public void easinessNeverFallsBelowMinimum() {
+        ReviewScheduler scheduler = new ReviewScheduler(1);
+        for (int i = 0; i < 10; i++) {
+            scheduler.answer(0, ReviewScheduler.GRADE_BLACKOUT, 0);
+        }
+        assertEquals(130, scheduler.getEasiness(0));
+    }
+
+    @Test
+    public void forgottenCardStartsOver() {
+        ReviewScheduler scheduler = new ReviewScheduler(1);
+        scheduler.answer(0, ReviewScheduler.GRADE_PERFECT, 0);
+        scheduler.answer(0, ReviewScheduler.GRADE_PERFECT, ReviewScheduler.DAY_MS);
+
+        long now = 7 * ReviewScheduler.DAY_MS;
+        scheduler.answer(0, 2, now);
+        assertEquals(0, scheduler.getRepetitions(0));
+        assertEquals(0, scheduler.getIntervalDays(0));
+        assertEquals(now + TEN_MINUTES_MS, scheduler.getDue(0));
+
+        scheduler.answer(0, ReviewScheduler.GRADE_PASS, now + TEN_MINUTES_MS);
+        assertEquals(1, scheduler.getIntervalDays(0));
+    }
+
+    @Test
+    public void reReviewedCardMovesInHeap() {
+        ReviewScheduler scheduler = new ReviewScheduler(3);
+        scheduler.answer(0, ReviewScheduler.GRADE_PERFECT, 0);
+        scheduler.answer(1, ReviewScheduler.GRADE_PERFECT, 0);
+        assertEquals(2, scheduler.peekNext());
+
+        scheduler.answer(2, ReviewScheduler.GRADE_BLACKOUT, 0);
+        assertEquals(2, scheduler.peekNext());
+        assertEquals(-1, scheduler.nextDue(TEN_MINUTES_MS - 1));
+        assertEquals(2, scheduler.nextDue(TEN_MINUTES_MS));
+
+        // Passing the relearned card sends it after the other two, which are due at the same
+        // time and come up by number
+        scheduler.answer(2, ReviewScheduler.GRADE_PERFECT, TEN_MINUTES_MS);
+        assertEquals(0, scheduler.peekNext());
+        scheduler.answer(0, ReviewScheduler.GRADE_PERFECT, ReviewScheduler.DAY_MS);
+        assertEquals(1, scheduler.peekNext());
+        scheduler.answer(1, ReviewScheduler.GRADE_PERFECT, ReviewScheduler.DAY_MS);
+        assertEquals(2, scheduler.peekNext());
+    }
+
+    @Test
+    public void restoreMovesCardEarlier() {
+        ReviewScheduler scheduler = new ReviewScheduler(3);
+        scheduler.restore(0, 250, 6, 2, 5000);
+        scheduler.restore(1, 250, 6, 2, 3000);
+        scheduler.restore(2, 250, 6, 2, 4000);
+        assertEquals(1, scheduler.peekNext());
+        scheduler.restore(0, 250, 6, 2, 1000);
+        assertEquals(0, scheduler.peekNext());
+    }
+
+    @Test
+    public void nextCardIsAlwaysTheEarliest() {
+        int cardCount = 200;
+        ReviewScheduler scheduler = new ReviewScheduler(cardCount);
+        Random random = new Random(42);
+        long now = 0;
+        for (int i = 0; i < 2000; i++) {
+            int card = random.nextInt(cardCount);
+            scheduler.answer(card, random.nextInt(ReviewScheduler.GRADE_PERFECT + 1), now);
+            now += random.nextInt(60 * 60 * 1000);
+            assertEquals(earliest(scheduler), scheduler.peekNext());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void gradeOutOfRangeIsRejected() {
+        new ReviewScheduler(1).answer(0, ReviewScheduler.GRADE_PERFECT + 1, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void unknownCardIsRejected() {
+        new ReviewScheduler(1).answer(1, ReviewScheduler.GRADE_PASS, 0);
+    }
+
+    /**
+     * Returns the card due first by scanning every card
+     */
+    private static int earliest(ReviewScheduler scheduler) {
+        int earliest = 0;
+        for (int card = 1; card < scheduler.getCardCount(); card++) {
+            if (scheduler.getDue(card) < scheduler.getDue(earliest)) {
+                earliest = card;
+            }
+        }
+        return earliest;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.android.miwok;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SearchIndexTest {
+
+    /* Default and Miwok translation of each word */
+    private static final String[][] WORDS = {
+            {"one", "lutti"},
+            {"two", "otiiko"},
+            {"red", "wetetti"},
+            {"green", "chokokki"},
+            {"dusty yellow", "ṭopiisә"},
+            {"Where are you going?", "minto wuksus"},
+    };
+
+    private SearchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = SearchIndex.build(new SearchIndex.Source() {
+            @Override
+            public int getWordCount() {
+                return WORDS.length;
+            }
+
+            @Override
+            public String getDefaultTranslation(int wordIndex) {
+                return WORDS[wordIndex][0];
+            }
+
+            @Override
+            public String getMiwokTranslation(int wordIndex) {
+                return WORDS[wordIndex][1];
+            }
+        });
+    }
+
+    @Test
+    public void coversEveryWord() {
+        assertEquals(WORDS.length, mIndex.getWordCount());
+    }
+
+    @Test
+    public void matchesPrefixes() {
+        assertArrayEquals(new int[]{0}, mIndex.search("lut", 10));
+        assertArrayEquals(new int[]{2}, mIndex.search("wetetti", 10));
+        assertArrayEquals(new int[]{4}, mIndex.search("yel", 10));
+    }
+
+    @Test
+    public void matchesOnlyStartsOfWords() {
+        assertArrayEquals(new int[0], mIndex.search("etti", 10));
+    }
+
+    @Test
+    public void ignoresCaseAndDiacritics() {
+        assertArrayEquals(new int[]{4}, mIndex.search("TOPIISE", 10));
+        assertArrayEquals(new int[]{4}, mIndex.search("ṭopiisә", 10));
+        assertArrayEquals(new int[]{5}, mIndex.search("where", 10));
+    }
+
+    @Test
+    public void matchesEveryQueryWord() {
+        assertArrayEquals(new int[]{4}, mIndex.search("dusty yel", 10));
+        assertArrayEquals(new int[]{4}, mIndex.search("yel dus", 10));
+        assertArrayEquals(new int[]{5}, mIndex.search("going minto", 10));
+        assertArrayEquals(new int[0], mIndex.search("dusty red", 10));
+    }
+
+    @Test
+    public void returnsEachWordOnceInOrder() {
+        // "where" and "wuksus" both match, "wetetti" is an earlier word
+        assertArrayEquals(new int[]{2, 5}, mIndex.search("w", 10));
+    }
+
+    @Test
+    public void stopsAtMaxResults() {
+        assertArrayEquals(new int[]{0, 1}, mIndex.search("o", 10));
+        assertEquals(1, mIndex.search("o", 1).length);
+    }
+
+    @Test
+    public void findsNothing() {
+        assertArrayEquals(new int[0], mIndex.search("xyz", 10));
+        assertArrayEquals(new int[0], mIndex.search("", 10));
+        assertArrayEquals(new int[0], mIndex.search(" ?! ", 10));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextFoldingTest {
+
+    @Test
+    public void foldsCase() {
+        assertEquals("wetetti", TextFolding.fold("WeTeTTi"));
+    }
+
+    @Test
+    public void dropsDiacritics() {
+        assertEquals("topiise", TextFolding.fold("ṭopiisә"));
+        assertEquals("cafe", TextFolding.fold("Café"));
+    }
+
+    @Test
+    public void readsSchwaAsE() {
+        assertEquals("oyyise", TextFolding.fold("oyyisә"));
+        assertEquals("oyyise", TextFolding.fold("OYYISƏ"));
+    }
+
+    @Test
+    public void dropsApostrophesInsideWords() {
+        assertEquals("tolookosu", TextFolding.fold("tolook’osu"));
+        assertEquals("tolookosu", TextFolding.fold("tolook'osu"));
+    }
+
+    @Test
+    public void splitsWordsOnPunctuation() {
+        assertEquals("where are you going", TextFolding.fold("  Where are you going?! "));
+        assertEquals("yes no", TextFolding.fold("yes,no"));
+    }
+
+    @Test
+    public void foldsNothingToEmpty() {
+        assertEquals("", TextFolding.fold(""));
+        assertEquals("", TextFolding.fold(" ?! "));
+    }
+}
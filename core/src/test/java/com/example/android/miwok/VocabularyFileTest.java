@@ -0,0 +1,144 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class VocabularyFileTest {
+
+    private static VocabularyWriter colors() {
+        VocabularyWriter writer = new VocabularyWriter();
+        writer.addCategory("numbers", "category_numbers", "category_numbers");
+        writer.addCategory("colors", "category_colors", null);
+        writer.addWord("numbers", "one", "lutti", "number_one", "number_one");
+        writer.addWord("colors", "red", "wetetti", "color_red", "color_red");
+        writer.addWord("colors", "dusty yellow", "ṭopiisә", null, "color_dusty_yellow");
+        return writer;
+    }
+
+    @Test
+    public void writesHeader() {
+        ByteBuffer buffer = ByteBuffer.wrap(colors().toByteArray());
+        assertEquals(VocabularyFile.MAGIC, buffer.getInt(0));
+        assertEquals(VocabularyFile.VERSION, buffer.getInt(4));
+        assertEquals(2, buffer.getInt(8));
+        assertEquals(3, buffer.getInt(12));
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() {
+        VocabularyFile file = new VocabularyFile(ByteBuffer.wrap(colors().toByteArray()));
+
+        assertEquals(2, file.getCategoryCount());
+        assertEquals(3, file.getWordCount());
+        assertEquals("numbers", file.getCategoryName(0));
+        assertEquals("category_colors", file.getCategoryTitleName(1));
+        assertEquals("category_numbers", file.getCategoryColorName(0));
+        assertEquals(1, file.findCategory("colors"));
+        assertEquals(-1, file.findCategory("family"));
+        assertEquals(1, file.getFirstWord(1));
+        assertEquals(2, file.getCategorySize(1));
+
+        assertEquals("red", file.getDefaultTranslation(1));
+        assertEquals("ṭopiisә", file.getMiwokTranslation(2));
+        assertEquals("color_red", file.getImageName(1));
+        assertEquals("color_dusty_yellow", file.getAudioName(2));
+    }
+
+    @Test
+    public void sharesKeysOfEqualNames() {
+        VocabularyFile file = new VocabularyFile(ByteBuffer.wrap(colors().toByteArray()));
+        assertEquals(file.getCategoryTitleKey(0), file.getCategoryColorKey(0));
+        assertEquals(file.getImageKey(0), file.getAudioKey(0));
+        assertEquals("number_one", file.getName(file.getAudioKey(0)));
+    }
+
+    @Test
+    public void marksMissingStrings() {
+        VocabularyFile file = new VocabularyFile(ByteBuffer.wrap(colors().toByteArray()));
+        assertEquals(VocabularyFile.NO_STRING, file.getImageKey(2));
+        assertNull(file.getImageName(2));
+        assertEquals(VocabularyFile.NO_STRING, file.getCategoryColorKey(1));
+    }
+
+    @Test
+    public void checksumFollowsContent() {
+        VocabularyFile file = new VocabularyFile(ByteBuffer.wrap(colors().toByteArray()));
+        VocabularyFile same = new VocabularyFile(ByteBuffer.wrap(colors().toByteArray()));
+        assertEquals(file.getContentChecksum(), same.getContentChecksum());
+
+        VocabularyWriter writer = colors();
+        writer.addWord("numbers", "two", "otiiko", "number_two", "number_two");
+        VocabularyFile changed = new VocabularyFile(ByteBuffer.wrap(writer.toByteArray()));
+        assertNotEquals(file.getContentChecksum(), changed.getContentChecksum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBadMagic() {
+        byte[] bytes = colors().toByteArray();
+        bytes[0] ^= 1;
+        new VocabularyFile(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherVersion() {
+        ByteBuffer buffer = ByteBuffer.wrap(colors().toByteArray());
+        buffer.putInt(4, VocabularyFile.VERSION - 1);
+        new VocabularyFile(buffer);
+    }
+
+    @Test
+    public void checksWrittenVocabulary() {
+        new VocabularyFile(ByteBuffer.wrap(colors().toByteArray())).check();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTablesLongerThanBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap(colors().toByteArray());
+        buffer.putInt(12, 1000);
+        new VocabularyFile(buffer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBufferShorterThanHeader() {
+        new VocabularyFile(ByteBuffer.wrap(new byte[VocabularyFile.HEADER_SIZE - 1]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkRejectsStringOutsideTable() {
+        ByteBuffer buffer = ByteBuffer.wrap(colors().toByteArray());
+        int word = VocabularyFile.HEADER_SIZE + 2 * VocabularyFile.CATEGORY_ENTRY_SIZE;
+        buffer.putInt(word + 4, buffer.capacity());
+        new VocabularyFile(buffer).check();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkRejectsMissingAudio() {
+        ByteBuffer buffer = ByteBuffer.wrap(colors().toByteArray());
+        int word = VocabularyFile.HEADER_SIZE + 2 * VocabularyFile.CATEGORY_ENTRY_SIZE;
+        buffer.putInt(word + 12, VocabularyFile.NO_STRING);
+        new VocabularyFile(buffer).check();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkRejectsCategoryPastWordTable() {
+        ByteBuffer buffer = ByteBuffer.wrap(colors().toByteArray());
+        int category = VocabularyFile.HEADER_SIZE + VocabularyFile.CATEGORY_ENTRY_SIZE;
+        buffer.putInt(category + 16, 3);
+        new VocabularyFile(buffer).check();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWordInUnknownCategory() {
+        colors().addWord("family", "father", "әpә", "family_father", "family_father");
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsWordOutOfRange() {
+        new VocabularyFile(ByteBuffer.wrap(colors().toByteArray())).getDefaultTranslation(3);
+    }
+}
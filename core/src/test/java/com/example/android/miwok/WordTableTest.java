@@ -0,0 +1,89 @@
+package com.example.android.miwok;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WordTableTest {
+
+    @Test
+    public void readsBackWhatWasAdded() {
+        WordTable table = new WordTable(1);
+        int colors = table.addCategory("colors");
+        int phrases = table.addCategory("phrases");
+        table.addWord(colors, "red", "wetetti", 7, 1);
+        table.addWord(phrases, "Where are you going?", "minto wuksus", WordTable.NO_IMAGE, 2);
+        table.addWord(WordTable.NO_CATEGORY, "dusty yellow", "ṭopiisә", 9, 3);
+        table.addWord(colors, "", "", WordTable.NO_IMAGE, 4);
+
+        assertEquals(4, table.size());
+        assertEquals("wetetti", table.getMiwokTranslation(0));
+        assertEquals("Where are you going?", table.getDefaultTranslation(1));
+        assertEquals("ṭopiisә", table.getMiwokTranslation(2));
+        assertEquals("", table.getDefaultTranslation(3));
+        assertEquals("", table.getMiwokTranslation(3));
+        assertEquals(9, table.getImageResourceId(2));
+        assertEquals(3, table.getAudioClipId(2));
+        assertEquals(phrases, table.getCategory(1));
+        assertEquals(WordTable.NO_CATEGORY, table.getCategory(2));
+        assertEquals("phrases", table.getCategoryName(table.getCategory(1)));
+
+        Word word = table.get(2);
+        assertEquals("dusty yellow", word.getDefaultTranslation());
+        assertEquals("ṭopiisә", word.getMiwokTranslation());
+        assertEquals(9, word.getImageResourceId());
+        assertEquals(3, word.getAudioClipId());
+        assertTrue(word.hasImage());
+        assertFalse(table.get(1).hasImage());
+    }
+
+    @Test
+    public void keepsRowsWhileGrowing() {
+        WordTable table = new WordTable(1);
+        for (int i = 0; i < 100; i++) {
+            table.addWord(WordTable.NO_CATEGORY, "word " + i, "miwok " + i,
+                    WordTable.NO_IMAGE, i);
+        }
+        assertEquals(100, table.size());
+        assertEquals("word 0", table.getDefaultTranslation(0));
+        assertEquals("miwok 57", table.getMiwokTranslation(57));
+        assertEquals("word 99", table.get(99).getDefaultTranslation());
+        assertEquals(99, table.get(99).getAudioClipId());
+    }
+
+    @Test
+    public void trimToSizeKeepsWords() {
+        WordTable table = new WordTable(64);
+        table.addWord(WordTable.NO_CATEGORY, "one", "lutti", WordTable.NO_IMAGE, 1);
+        table.addWord(WordTable.NO_CATEGORY, "two", "otiiko", WordTable.NO_IMAGE, 2);
+        table.trimToSize();
+        assertEquals(2, table.size());
+        assertEquals("lutti", table.getMiwokTranslation(0));
+        assertEquals("otiiko", table.get(1).getMiwokTranslation());
+        assertEquals(2, table.get(1).getAudioClipId());
+    }
+
+    @Test
+    public void addCategoryReusesIndex() {
+        WordTable table = new WordTable();
+        assertEquals(0, table.addCategory("numbers"));
+        assertEquals(1, table.addCategory("colors"));
+        assertEquals(0, table.addCategory("numbers"));
+        assertEquals(1, table.findCategory("colors"));
+        assertEquals(-1, table.findCategory("family"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCategoryIsRejected() {
+        new WordTable().addWord(0, "one", "lutti", WordTable.NO_IMAGE, 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rowOutOfRangeIsRejected() {
+        WordTable table = new WordTable();
+        table.addWord(WordTable.NO_CATEGORY, "one", "lutti", WordTable.NO_IMAGE, 1);
+        table.get(1);
+    }
+}